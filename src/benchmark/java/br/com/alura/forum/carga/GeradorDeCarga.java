@@ -0,0 +1,71 @@
+package br.com.alura.forum.carga;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gera a carga em modelo aberto: as requisições saem numa taxa fixa (taxa por segundo), nos instantes marcados
+ * pelo agendamento, sem esperar as anteriores responderem. É como chegam os usuários de verdade; num modelo
+ * fechado (N threads, cada uma esperando a sua resposta), uma aplicação lenta freia o próprio gerador e a fila
+ * que se formaria não aparece nas medições.
+ *
+ * Uma única thread agenda e envia (sendAsync); as respostas são registradas pelas threads do HttpClient.
+ */
+class GeradorDeCarga {
+
+    private final HttpClient cliente;
+    private final URI base;
+    private final MassaDeDados massa;
+
+    GeradorDeCarga(HttpClient cliente, URI base, MassaDeDados massa) {
+        this.cliente = cliente;
+        this.base = base;
+        this.massa = massa;
+    }
+
+    //semente: a mesma sequência de operações a cada execução da mesma etapa
+    ResultadoDaEtapa executar(int taxa, Duration duracao, long semente) throws InterruptedException {
+        Random aleatorio = new Random(semente);
+        long intervalo = TimeUnit.SECONDS.toNanos(1) / taxa;
+        long quantidade = taxa * duracao.getSeconds();
+        AtomicInteger emAndamento = new AtomicInteger();
+
+        long inicio = System.nanoTime();
+        ResultadoDaEtapa resultado = new ResultadoDaEtapa(taxa, inicio);
+        for (long i = 0; i < quantidade; i++) {
+            long previsto = inicio + i * intervalo;
+            long espera;
+            while ((espera = previsto - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(espera);
+            }
+
+            Operacao operacao = Operacao.sortear(aleatorio);
+            HttpRequest requisicao = operacao.requisicao(base, massa, aleatorio).timeout(Operacao.TEMPO_LIMITE).build();
+            resultado.registrarEnvio(emAndamento.incrementAndGet());
+            long enviado = System.nanoTime();
+            cliente.sendAsync(requisicao, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((resposta, erro) -> {
+                        resultado.registrar(operacao, previsto, enviado, System.nanoTime(),
+                                resposta == null ? -1 : resposta.statusCode());
+                        if (operacao == Operacao.CADASTRAR && resposta != null && resposta.statusCode() == 201) {
+                            resposta.headers().firstValue("Location").ifPresent(massa::criado);
+                        }
+                        emAndamento.decrementAndGet();
+                    });
+        }
+
+        // as requisições que ainda estão em andamento entram na etapa; o HttpClient desiste delas no TEMPO_LIMITE
+        long limite = System.nanoTime() + Operacao.TEMPO_LIMITE.plusSeconds(5).toNanos();
+        while (emAndamento.get() > 0 && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+        return resultado;
+    }
+}
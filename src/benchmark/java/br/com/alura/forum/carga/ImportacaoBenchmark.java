@@ -0,0 +1,121 @@
+package br.com.alura.forum.carga;
+
+import br.com.alura.forum.ForumApplication;
+import br.com.alura.forum.GeradorDeDados;
+import br.com.alura.forum.service.DicionarioDeCursos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vazão da importação em lote (POST /topicos/importacao) contra a mesma quantidade de tópicos cadastrados um a um
+ * (um POST /topicos por tópico), pela aplicação inteira: HTTP, filtro de autenticação, validação e banco.
+ *
+ * A aplicação sobe com o profile "carga" (H2 em memória), como no TesteDeCarga. Os dois benchmarks medem o tempo
+ * por tópico (@OperationsPerInvocation), então a razão entre eles é o ganho da importação.
+ *
+ * mvn -Pbenchmark verify -Djmh.filtro=Importacao
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImportacaoBenchmark {
+
+    private static final int TOPICOS = 1000;
+    private static final String SENHA = "123456";
+
+    private ConfigurableApplicationContext contexto;
+    private HttpClient cliente;
+    private URI base;
+    private MassaDeDados massa;
+    private byte[] importacao;
+    private String topico;
+
+    @Setup
+    public void setUp() throws SQLException, IOException, InterruptedException {
+        contexto = new SpringApplicationBuilder(ForumApplication.class)
+                .profiles("carga")
+                .run("--server.port=0");
+        String senha = contexto.getBean(PasswordEncoder.class).encode(SENHA);
+        GeradorDeDados.DadosGerados dados = new GeradorDeDados(contexto.getBean(DataSource.class), 42)
+                .gerar(1, 1, 1, 0, senha);
+        contexto.getBean(DicionarioDeCursos.class).recarregar();
+
+        base = URI.create("http://localhost:" + contexto.getEnvironment().getRequiredProperty("local.server.port"));
+        cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        massa = new MassaDeDados(dados.getPrimeiroTopico(), dados.getTopicos(), dados.nomesDosCursos(),
+                dados.emailDoUsuario(0), SENHA);
+        massa.autenticar(cliente, base);
+
+        // o mesmo tópico nos dois benchmarks; na importação, um por linha (NDJSON)
+        topico = "{\"titulo\":\"Dúvida importada\",\"mensagem\":\"Erro ao rodar o projeto\",\"nomeCurso\":\""
+                + dados.nomeDoCurso(0) + "\"}";
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < TOPICOS; i++) {
+            ndjson.append(topico).append('\n');
+        }
+        importacao = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TOPICOS)
+    public int importarEmLote() throws IOException, InterruptedException {
+        return enviar(autenticada(base.resolve("/topicos/importacao"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(importacao)).build(), 200);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TOPICOS)
+    public int cadastrarUmPorUm() throws IOException, InterruptedException {
+        int status = 0;
+        for (int i = 0; i < TOPICOS; i++) {
+            status += enviar(autenticada(base.resolve("/topicos"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(topico)).build(), 201);
+        }
+        return status;
+    }
+
+    private int enviar(HttpRequest requisicao, int esperado) throws IOException, InterruptedException {
+        HttpResponse<Void> resposta = cliente.send(requisicao, HttpResponse.BodyHandlers.discarding());
+        if (resposta.statusCode() != esperado) {
+            throw new IllegalStateException("POST " + requisicao.uri().getPath() + " devolveu " + resposta.statusCode());
+        }
+        return resposta.statusCode();
+    }
+
+    private HttpRequest.Builder autenticada(URI uri) {
+        return HttpRequest.newBuilder(uri).header("Authorization", "Bearer " + massa.getToken());
+    }
+}
@@ -0,0 +1,78 @@
+package br.com.alura.forum.carga;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * O que o teste de carga sabe sobre os dados semeados (GeradorDeDados): os ids dos tópicos, os nomes dos cursos e o
+ * usuário que faz login e as escritas. Os tópicos criados pelo POST entram numa fila e são os que o DELETE remove.
+ */
+class MassaDeDados {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+
+    private final long primeiroTopico;
+    private final int topicos;
+    private final List<String> cursos;
+    private final String email;
+    private final String senha;
+    private final ConcurrentLinkedQueue<Long> criados = new ConcurrentLinkedQueue<>();
+    private volatile String token;
+
+    MassaDeDados(long primeiroTopico, int topicos, List<String> cursos, String email, String senha) {
+        this.primeiroTopico = primeiroTopico;
+        this.topicos = topicos;
+        this.cursos = cursos;
+        this.email = email;
+        this.senha = senha;
+    }
+
+    //O token das escritas é obtido uma vez, antes da carga; o LOGIN da mistura mede o /auth, mas não troca o token.
+    void autenticar(HttpClient cliente, URI base) throws IOException, InterruptedException {
+        HttpResponse<String> resposta = cliente.send(Operacao.LOGIN.requisicao(base, this, new Random()).build(),
+                HttpResponse.BodyHandlers.ofString());
+        Matcher token = TOKEN.matcher(resposta.body());
+        if (resposta.statusCode() != 200 || !token.find()) {
+            throw new IllegalStateException("Login do teste de carga falhou: " + resposta.statusCode() + " " + resposta.body());
+        }
+        this.token = token.group(1);
+    }
+
+    long topicoAleatorio(Random aleatorio) {
+        return primeiroTopico + aleatorio.nextInt(topicos);
+    }
+
+    String cursoAleatorio(Random aleatorio) {
+        return cursos.get(aleatorio.nextInt(cursos.size()));
+    }
+
+    // o Location do 201 termina com o id do tópico criado
+    void criado(String location) {
+        criados.add(Long.parseLong(location.substring(location.lastIndexOf('/') + 1)));
+    }
+
+    long proximoParaRemover() {
+        Long id = criados.poll();
+        return id == null ? -1 : id;
+    }
+
+    String getEmail() {
+        return email;
+    }
+
+    String getSenha() {
+        return senha;
+    }
+
+    String getToken() {
+        return token;
+    }
+}
@@ -0,0 +1,102 @@
+package br.com.alura.forum.carga;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Os endpoints exercitados pelo teste de carga e o peso de cada um na mistura (de cada 100 requisições, quantas são
+ * daquele tipo). Como num fórum de verdade, a maior parte é leitura.
+ *
+ * O DELETE remove tópicos criados pelo próprio teste (no POST), para não apagar os tópicos semeados que os GETs usam.
+ */
+enum Operacao {
+
+    LOGIN("POST /auth", 5) {
+        @Override
+        HttpRequest.Builder requisicao(URI base, MassaDeDados massa, Random aleatorio) {
+            return json(base.resolve("/auth"))
+                    .POST(corpo("{\"email\":\"" + massa.getEmail() + "\",\"senha\":\"" + massa.getSenha() + "\"}"));
+        }
+    },
+    LISTAR("GET /topicos", 45) {
+        @Override
+        HttpRequest.Builder requisicao(URI base, MassaDeDados massa, Random aleatorio) {
+            // as primeiras páginas são as mais vistas; um terço das listagens filtra por curso
+            String uri = "/topicos?page=" + aleatorio.nextInt(5) + "&size=10";
+            if (aleatorio.nextInt(3) == 0) {
+                uri += "&nomeCurso=" + massa.cursoAleatorio(aleatorio).replace(" ", "%20");
+            }
+            return HttpRequest.newBuilder(base.resolve(uri)).GET();
+        }
+    },
+    DETALHAR("GET /topicos/{id}", 30) {
+        @Override
+        HttpRequest.Builder requisicao(URI base, MassaDeDados massa, Random aleatorio) {
+            return HttpRequest.newBuilder(base.resolve("/topicos/" + massa.topicoAleatorio(aleatorio))).GET();
+        }
+    },
+    CADASTRAR("POST /topicos", 10) {
+        @Override
+        HttpRequest.Builder requisicao(URI base, MassaDeDados massa, Random aleatorio) {
+            return autenticada(json(base.resolve("/topicos")), massa)
+                    .POST(corpo("{\"titulo\":\"Dúvida da carga\",\"mensagem\":\"Erro ao rodar o projeto\",\"nomeCurso\":\""
+                            + massa.cursoAleatorio(aleatorio) + "\"}"));
+        }
+    },
+    ATUALIZAR("PUT /topicos/{id}", 6) {
+        @Override
+        HttpRequest.Builder requisicao(URI base, MassaDeDados massa, Random aleatorio) {
+            return autenticada(json(base.resolve("/topicos/" + massa.topicoAleatorio(aleatorio))), massa)
+                    .PUT(corpo("{\"titulo\":\"Dúvida atualizada\",\"mensagem\":\"Erro ao rodar o projeto de novo\"}"));
+        }
+    },
+    REMOVER("DELETE /topicos/{id}", 4) {
+        @Override
+        HttpRequest.Builder requisicao(URI base, MassaDeDados massa, Random aleatorio) {
+            // sem tópico criado pelo teste para remover, o DELETE vira um 404 (e aparece nos erros)
+            return autenticada(HttpRequest.newBuilder(base.resolve("/topicos/" + massa.proximoParaRemover())), massa)
+                    .DELETE();
+        }
+    };
+
+    static final Duration TEMPO_LIMITE = Duration.ofSeconds(30);
+
+    private final String endpoint;
+    private final int peso;
+
+    Operacao(String endpoint, int peso) {
+        this.endpoint = endpoint;
+        this.peso = peso;
+    }
+
+    abstract HttpRequest.Builder requisicao(URI base, MassaDeDados massa, Random aleatorio);
+
+    String getEndpoint() {
+        return endpoint;
+    }
+
+    static Operacao sortear(Random aleatorio) {
+        int sorteio = aleatorio.nextInt(100);
+        for (Operacao operacao : values()) {
+            sorteio -= operacao.peso;
+            if (sorteio < 0) {
+                return operacao;
+            }
+        }
+        return LISTAR;
+    }
+
+    private static HttpRequest.Builder json(URI uri) {
+        return HttpRequest.newBuilder(uri).header("Content-Type", "application/json");
+    }
+
+    private static HttpRequest.Builder autenticada(HttpRequest.Builder requisicao, MassaDeDados massa) {
+        return requisicao.header("Authorization", "Bearer " + massa.getToken());
+    }
+
+    private static HttpRequest.BodyPublisher corpo(String json) {
+        return HttpRequest.BodyPublishers.ofString(json);
+    }
+}
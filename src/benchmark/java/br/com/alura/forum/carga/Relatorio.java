@@ -0,0 +1,95 @@
+package br.com.alura.forum.carga;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Grava o resultado de cada etapa em pasta (target/carga por padrão):
+ *
+ * percentis.csv: por taxa e endpoint, os percentis do tempo de resposta (corrigido) e o p99 do tempo de serviço;
+ * vazao.csv: por taxa, a vazão obtida, a concorrência média e máxima e os percentis de todas as requisições juntas,
+ * que é a curva de vazão (a vazão para de acompanhar a taxa e os percentis disparam quando a aplicação satura);
+ * e um .hgrm por taxa e endpoint, com a distribuição completa, no formato que o plotter do HdrHistogram lê.
+ *
+ * Os tempos estão em milissegundos.
+ */
+class Relatorio {
+
+    private final Path pasta;
+    private final List<ResultadoDaEtapa> etapas = new ArrayList<>();
+
+    Relatorio(Path pasta) {
+        this.pasta = pasta;
+    }
+
+    void adicionar(ResultadoDaEtapa etapa) {
+        etapas.add(etapa);
+        imprimir(etapa, System.out);
+    }
+
+    void gravar() throws IOException {
+        Files.createDirectories(pasta);
+        try (PrintStream percentis = arquivo("percentis.csv"); PrintStream vazao = arquivo("vazao.csv")) {
+            percentis.println("taxa,endpoint,requisicoes,erros,p50,p90,p99,p999,maximo,p99_servico");
+            vazao.println("taxa,vazao,erros,concorrencia_media,concorrencia_maxima,p50,p99,p999,maximo");
+            for (ResultadoDaEtapa etapa : etapas) {
+                for (Operacao operacao : Operacao.values()) {
+                    Histogram resposta = etapa.resposta(operacao);
+                    percentis.println(String.format(Locale.ROOT, "%d,%s,%d,%d,%s,%.3f", etapa.getTaxa(), operacao.getEndpoint(),
+                            resposta.getTotalCount(), etapa.erros(operacao), percentis(resposta),
+                            ms(etapa.servico(operacao).getValueAtPercentile(99))));
+                    try (PrintStream hgrm = arquivo(etapa.getTaxa() + "-" + operacao.name().toLowerCase() + ".hgrm")) {
+                        resposta.outputPercentileDistribution(hgrm, 1000.0);
+                    }
+                }
+                Histogram total = etapa.respostaTotal();
+                vazao.println(String.format(Locale.ROOT, "%d,%.1f,%d,%.1f,%d,%.3f,%.3f,%.3f,%.3f", etapa.getTaxa(), etapa.vazao(),
+                        etapa.errosTotal(), etapa.concorrenciaMedia(), etapa.getConcorrenciaMaxima(),
+                        ms(total.getValueAtPercentile(50)), ms(total.getValueAtPercentile(99)),
+                        ms(total.getValueAtPercentile(99.9)), ms(total.getMaxValue())));
+            }
+        }
+        System.out.println("Resultados em " + pasta.toAbsolutePath());
+    }
+
+    private static void imprimir(ResultadoDaEtapa etapa, PrintStream saida) {
+        saida.println(String.format(Locale.ROOT, "%n== %d req/s: vazao %.1f req/s, %d erro(s), concorrencia media %.1f (maxima %d)",
+                etapa.getTaxa(), etapa.vazao(), etapa.errosTotal(), etapa.concorrenciaMedia(), etapa.getConcorrenciaMaxima()));
+        saida.println(String.format("%-22s %8s %6s %9s %9s %9s %9s %9s %9s", "endpoint", "req", "erros",
+                "p50", "p90", "p99", "p99,9", "max", "p99 serv"));
+        for (Operacao operacao : Operacao.values()) {
+            Histogram resposta = etapa.resposta(operacao);
+            if (resposta.getTotalCount() == 0) {
+                continue;
+            }
+            saida.println(String.format(Locale.ROOT, "%-22s %8d %6d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f", operacao.getEndpoint(),
+                    resposta.getTotalCount(), etapa.erros(operacao),
+                    ms(resposta.getValueAtPercentile(50)), ms(resposta.getValueAtPercentile(90)),
+                    ms(resposta.getValueAtPercentile(99)), ms(resposta.getValueAtPercentile(99.9)),
+                    ms(resposta.getMaxValue()), ms(etapa.servico(operacao).getValueAtPercentile(99))));
+        }
+    }
+
+    private static String percentis(Histogram histograma) {
+        return String.format(Locale.ROOT, "%.3f,%.3f,%.3f,%.3f,%.3f", ms(histograma.getValueAtPercentile(50)),
+                ms(histograma.getValueAtPercentile(90)), ms(histograma.getValueAtPercentile(99)),
+                ms(histograma.getValueAtPercentile(99.9)), ms(histograma.getMaxValue()));
+    }
+
+    private PrintStream arquivo(String nome) throws FileNotFoundException {
+        return new PrintStream(pasta.resolve(nome).toFile());
+    }
+
+    // os histogramas guardam microssegundos
+    private static double ms(long micros) {
+        return micros / 1000.0;
+    }
+}
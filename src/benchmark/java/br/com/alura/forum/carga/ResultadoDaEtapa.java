@@ -0,0 +1,104 @@
+package br.com.alura.forum.carga;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * As medições de uma etapa (uma taxa de chegada), por endpoint, em microssegundos.
+ *
+ * resposta é o tempo desde o instante em que a requisição deveria ter saído, pelo agendamento, até a resposta:
+ * se o gerador atrasa o envio porque a aplicação (ou a máquina) engasgou, esse atraso entra na conta, como entraria
+ * para um usuário de verdade. É a correção da omissão coordenada. servico é o tempo desde o envio de fato, que é o
+ * que um gerador ingênuo mediria; a diferença entre os dois mostra quanto a fila cresceu.
+ */
+class ResultadoDaEtapa {
+
+    private final int taxa;
+    private final Map<Operacao, Medicoes> medicoes = new EnumMap<>(Operacao.class);
+    private final AtomicInteger concorrenciaMaxima = new AtomicInteger();
+    private final AtomicLong ultimaResposta = new AtomicLong();
+    private final long inicio;
+
+    ResultadoDaEtapa(int taxa, long inicio) {
+        this.taxa = taxa;
+        this.inicio = inicio;
+        this.ultimaResposta.set(inicio);
+        for (Operacao operacao : Operacao.values()) {
+            medicoes.put(operacao, new Medicoes());
+        }
+    }
+
+    void registrarEnvio(int emAndamento) {
+        concorrenciaMaxima.accumulateAndGet(emAndamento, Math::max);
+    }
+
+    //status -1: a requisição nem teve resposta (conexão recusada, tempo limite)
+    void registrar(Operacao operacao, long previsto, long enviado, long respondido, int status) {
+        Medicoes medicao = medicoes.get(operacao);
+        medicao.resposta.recordValue(TimeUnit.NANOSECONDS.toMicros(respondido - previsto));
+        medicao.servico.recordValue(TimeUnit.NANOSECONDS.toMicros(respondido - enviado));
+        if (status < 200 || status >= 400) {
+            medicao.erros.increment();
+        }
+        ultimaResposta.accumulateAndGet(respondido, Math::max);
+    }
+
+    int getTaxa() {
+        return taxa;
+    }
+
+    Histogram resposta(Operacao operacao) {
+        return medicoes.get(operacao).resposta;
+    }
+
+    Histogram servico(Operacao operacao) {
+        return medicoes.get(operacao).servico;
+    }
+
+    long erros(Operacao operacao) {
+        return medicoes.get(operacao).erros.sum();
+    }
+
+    // todas as operações juntas, para a curva de vazão
+    Histogram respostaTotal() {
+        Histogram total = new Histogram(3);
+        medicoes.values().forEach(medicao -> total.add(medicao.resposta));
+        return total;
+    }
+
+    long errosTotal() {
+        return medicoes.values().stream().mapToLong(medicao -> medicao.erros.sum()).sum();
+    }
+
+    double segundos() {
+        return (ultimaResposta.get() - inicio) / 1e9;
+    }
+
+    double vazao() {
+        return respostaTotal().getTotalCount() / segundos();
+    }
+
+    // lei de Little: requisições em andamento, em média = vazão x tempo médio de resposta
+    double concorrenciaMedia() {
+        Histogram total = respostaTotal();
+        return total.getTotalCount() * total.getMean() / 1e6 / segundos();
+    }
+
+    int getConcorrenciaMaxima() {
+        return concorrenciaMaxima.get();
+    }
+
+    private static class Medicoes {
+
+        private final Histogram resposta = new ConcurrentHistogram(3);
+        private final Histogram servico = new ConcurrentHistogram(3);
+        private final LongAdder erros = new LongAdder();
+    }
+}
@@ -0,0 +1,77 @@
+package br.com.alura.forum.carga;
+
+import br.com.alura.forum.ForumApplication;
+import br.com.alura.forum.GeradorDeDados;
+import br.com.alura.forum.service.DicionarioDeCursos;
+import br.com.alura.forum.service.ReconciliacaoDeContadores;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Teste de carga de ponta a ponta: sobe a aplicação com o profile "carga" (H2 em memória, porta aleatória), semeia
+ * o banco e roda a mistura de Operacao em taxas de chegada crescentes, uma etapa por taxa.
+ *
+ * mvn -Pbenchmark test-compile exec:exec@carga [-Dcarga.taxas=50,100,200 -Dcarga.duracao=30 -Dcarga.topicos=5000 -Dcarga.respostas=50000]
+ *
+ * Antes das etapas, um aquecimento na primeira taxa (descartado) deixa o JIT, os pools e os caches no estado de
+ * uma aplicação que já está no ar. O resultado vai para o Relatorio.
+ */
+public class TesteDeCarga {
+
+    private static final String SENHA = "123456";
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> taxas = new ArrayList<>();
+        for (String taxa : System.getProperty("carga.taxas", "50,100,200,400,800").split(",")) {
+            taxas.add(Integer.parseInt(taxa.trim()));
+        }
+        Duration duracao = Duration.ofSeconds(Long.getLong("carga.duracao", 30));
+        Duration aquecimento = Duration.ofSeconds(Long.getLong("carga.aquecimento", 15));
+        int topicos = Integer.getInteger("carga.topicos", 5000);
+        long respostas = Long.getLong("carga.respostas", topicos * 10L);
+        Relatorio relatorio = new Relatorio(Paths.get(System.getProperty("carga.saida", "target/carga")));
+
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(ForumApplication.class)
+                .profiles("carga")
+                .run("--server.port=0")) {
+            MassaDeDados massa = semear(contexto, topicos, respostas);
+            URI base = URI.create("http://localhost:" + contexto.getEnvironment().getRequiredProperty("local.server.port"));
+            HttpClient cliente = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            massa.autenticar(cliente, base);
+
+            GeradorDeCarga gerador = new GeradorDeCarga(cliente, base, massa);
+            System.out.println("Aquecimento: " + aquecimento.getSeconds() + " s a " + taxas.get(0) + " req/s");
+            gerador.executar(taxas.get(0), aquecimento, 0);
+            for (int taxa : taxas) {
+                relatorio.adicionar(gerador.executar(taxa, duracao, taxa));
+            }
+            relatorio.gravar();
+        }
+    }
+
+    //A massa vem do GeradorDeDados (sempre a mesma, pela semente fixa). Depois, os contadores de tópicos por curso
+    //são refeitos e o dicionário de cursos é recarregado, como aconteceria na subida.
+    private static MassaDeDados semear(ConfigurableApplicationContext contexto, int topicos, long respostas) throws SQLException {
+        String senha = contexto.getBean(PasswordEncoder.class).encode(SENHA);
+        GeradorDeDados.DadosGerados dados = new GeradorDeDados(contexto.getBean(DataSource.class), 42)
+                .gerar(20, Math.max(10, topicos / 20), topicos, respostas, senha);
+
+        contexto.getBean(ReconciliacaoDeContadores.class).reconciliar();
+        contexto.getBean(DicionarioDeCursos.class).recarregar();
+        return new MassaDeDados(dados.getPrimeiroTopico(), dados.getTopicos(), dados.nomesDosCursos(),
+                dados.emailDoUsuario(0), SENHA);
+    }
+}
@@ -0,0 +1,84 @@
+package br.com.alura.forum.config.security;
+
+import br.com.alura.forum.modelo.Perfil;
+import br.com.alura.forum.modelo.Usuario;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Geração e verificação do token, que acontecem no login e em toda requisição autenticada.
+ *
+ * cacheDeTokens=false mede a verificação de verdade (assinatura HMAC e parse do JSON); com true, as chamadas depois
+ * da primeira saem do cache de tokens verificados, que é o caso de um cliente fazendo várias requisições.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenServiceBenchmark {
+
+    @Param({"false", "true"})
+    private boolean cacheDeTokens;
+
+    @Param({"false", "true"})
+    private boolean claimsCompletas;
+
+    private TokenService tokenService;
+    private Authentication autenticacao;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        tokenService = new TokenService();
+        ReflectionTestUtils.setField(tokenService, "expiration", "86400000");
+        ReflectionTestUtils.setField(tokenService, "secret", Base64.getEncoder()
+                .encodeToString("chave do benchmark, do mesmo tamanho de uma chave HS256 real".getBytes(StandardCharsets.US_ASCII)));
+        ReflectionTestUtils.setField(tokenService, "claimsCompletas", claimsCompletas);
+        ReflectionTestUtils.setField(tokenService, "maximoEmCache", cacheDeTokens ? 10000L : 0L);
+        ReflectionTestUtils.setField(tokenService, "expiracaoDoCache", 60000L);
+        tokenService.inicializar();
+
+        Perfil perfil = new Perfil();
+        perfil.setId(1L);
+        perfil.setNome("ROLE_ALUNO");
+        Usuario usuario = new Usuario();
+        usuario.setId(42L);
+        usuario.setNome("Aluno");
+        usuario.getPerfis().add(perfil);
+        autenticacao = new UsernamePasswordAuthenticationToken(usuario, null, usuario.getAuthorities());
+        token = tokenService.gerarToken(autenticacao);
+    }
+
+    @Benchmark
+    public String gerarToken() {
+        return tokenService.gerarToken(autenticacao);
+    }
+
+    @Benchmark
+    public boolean isTokenValido() {
+        return tokenService.isTokenValido(token);
+    }
+
+    @Benchmark
+    public Long getIdUsuario() {
+        return tokenService.getIdUsuario(token);
+    }
+}
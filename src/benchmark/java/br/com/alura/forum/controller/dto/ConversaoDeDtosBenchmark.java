@@ -0,0 +1,92 @@
+package br.com.alura.forum.controller.dto;
+
+import br.com.alura.forum.controller.paginacao.Cursor;
+import br.com.alura.forum.modelo.Curso;
+import br.com.alura.forum.modelo.Resposta;
+import br.com.alura.forum.modelo.Topico;
+import br.com.alura.forum.modelo.Usuario;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversão das entidades em DTOs, sem banco: TopicoDto.converter numa página de tópicos e a montagem do
+ * DetalhesDoTopicoDto com a lista de respostas convertida, para listas de tamanhos diferentes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversaoDeDtosBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int quantidade;
+
+    private Page<Topico> topicos;
+    private Topico topico;
+    private List<Resposta> respostas;
+
+    @Setup
+    public void setUp() {
+        Curso curso = new Curso();
+        curso.setId(1L);
+        curso.setNome("Spring Boot");
+        Usuario autor = new Usuario();
+        autor.setId(1L);
+        autor.setNome("Aluno");
+
+        LocalDateTime inicio = LocalDateTime.of(2021, 10, 1, 12, 0);
+        List<Topico> conteudo = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            Topico topico = new Topico("Dúvida " + i, "Erro ao criar o projeto " + i, curso);
+            topico.setId((long) i);
+            topico.setAutor(autor);
+            topico.setDataCriacao(inicio.plusMinutes(i));
+            conteudo.add(topico);
+        }
+        topicos = new PageImpl<>(conteudo, PageRequest.of(0, quantidade), quantidade * 10L);
+
+        topico = conteudo.get(0);
+        respostas = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            Resposta resposta = new Resposta();
+            resposta.setId((long) i);
+            resposta.setMensagem("Tente limpar o projeto " + i);
+            resposta.setDataCriacao(inicio.plusMinutes(i));
+            resposta.setTopico(topico);
+            resposta.setAutor(autor);
+            respostas.add(resposta);
+        }
+    }
+
+    @Benchmark
+    public Page<TopicoDto> converterPaginaDeTopicos() {
+        return TopicoDto.converter(topicos);
+    }
+
+    // todas as respostas numa página só, para a conversão acompanhar o tamanho da lista
+    @Benchmark
+    public DetalhesDoTopicoDto montarDetalhes() {
+        PaginaPorCursorDto<RespostaDto> pagina = PaginaPorCursorDto.converter(respostas, quantidade, RespostaDto::new,
+                resposta -> new Cursor(resposta.getDataCriacao(), resposta.getId()));
+        return new DetalhesDoTopicoDto(topico, pagina, quantidade, 0);
+    }
+}
@@ -0,0 +1,91 @@
+package br.com.alura.forum.controller.dto;
+
+import br.com.alura.forum.controller.form.TopicoImportadoForm;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * O trabalho do Jackson: a Page<TopicoDto> do GET /topicos virando JSON e a leitura dos registros da importação
+ * em lote (POST /topicos/importacao), do mesmo jeito que o controller lê, pelo MappingIterator.
+ *
+ * O ObjectMapper é configurado como o do Spring Boot (datas em ISO-8601, não em números).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializacaoBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int quantidade;
+
+    private ObjectMapper objectMapper;
+    private ObjectReader leitorDaImportacao;
+    private Page<TopicoDto> pagina;
+    private byte[] importacao;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        leitorDaImportacao = objectMapper.readerFor(TopicoImportadoForm.class);
+
+        LocalDateTime inicio = LocalDateTime.of(2021, 10, 1, 12, 0);
+        List<TopicoDto> topicos = new ArrayList<>(quantidade);
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < quantidade; i++) {
+            topicos.add(new TopicoDto((long) i, "Dúvida " + i, "Erro ao criar o projeto " + i, inicio.plusMinutes(i),
+                    i % 7, inicio.plusMinutes(i + 30)));
+            // um JSON por linha (NDJSON), com duas respostas por tópico
+            json.append("{\"titulo\":\"Dúvida ").append(i)
+                    .append("\",\"mensagem\":\"Erro ao criar o projeto ").append(i)
+                    .append("\",\"nomeCurso\":\"Spring Boot\",\"dataCriacao\":\"").append(inicio.plusMinutes(i))
+                    .append("\",\"respostas\":[{\"mensagem\":\"Tente limpar o projeto\"},")
+                    .append("{\"mensagem\":\"Resolvido\",\"solucao\":true}]}\n");
+        }
+        pagina = new PageImpl<>(topicos, PageRequest.of(0, quantidade), quantidade * 10L);
+        importacao = json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] serializarPaginaDeTopicos() throws IOException {
+        return objectMapper.writeValueAsBytes(pagina);
+    }
+
+    @Benchmark
+    public void lerImportacao(Blackhole blackhole) throws IOException {
+        try (MappingIterator<TopicoImportadoForm> registros = leitorDaImportacao.readValues(importacao)) {
+            while (registros.hasNextValue()) {
+                blackhole.consume(registros.nextValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package br.com.alura.forum.busca;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido, em memória, do título e da mensagem dos tópicos: para cada termo, em quais tópicos ele aparece
+ * e quantas vezes. Uma busca só olha os tópicos que têm algum termo da consulta, em vez de um LIKE '%x%' na tabela.
+ *
+ * A ordem do resultado usa o BM25: um termo conta mais quando é raro (aparece em poucos tópicos) e quando se repete
+ * no tópico, mas com retorno decrescente e descontando o tamanho do texto. Os termos do título valem
+ * PESO_DO_TITULO vezes os da mensagem.
+ *
+ * Várias buscas podem ler ao mesmo tempo; uma alteração espera as leituras em andamento (ReadWriteLock).
+ */
+@Component
+public class IndiceDeTopicos {
+
+    static final int PESO_DO_TITULO = 2;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final ReadWriteLock trava = new ReentrantReadWriteLock();
+    private final Map<String, Map<Long, Integer>> ocorrencias = new HashMap<>();
+    private final Map<Long, Documento> documentos = new HashMap<>();
+    private long somaDosTamanhos;
+    //ids alterados pelos eventos enquanto a reconstrução está rodando; ela não sobrescreve esses (null = sem reconstrução)
+    private Set<Long> alteradosDuranteAReconstrucao;
+
+    public IndiceDeTopicos(MeterRegistry registry) {
+        registry.gauge("forum.busca.topicos.indexados", this, IndiceDeTopicos::tamanho);
+    }
+
+    public void indexar(Long id, String titulo, String mensagem) {
+        trava.writeLock().lock();
+        try {
+            marcarAlterado(id);
+            retirar(id);
+            incluir(id, titulo, mensagem);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    public void remover(Long id) {
+        trava.writeLock().lock();
+        try {
+            marcarAlterado(id);
+            retirar(id);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    public List<TopicoEncontrado> buscar(String consulta, int limite) {
+        Set<String> termos = new LinkedHashSet<>(Tokenizador.termos(consulta));
+        if (termos.isEmpty() || limite <= 0) {
+            return Collections.emptyList();
+        }
+        Map<Long, Double> pontuacoes = new HashMap<>();
+        trava.readLock().lock();
+        try {
+            int total = documentos.size();
+            double tamanhoMedio = total == 0 ? 1 : (double) somaDosTamanhos / total;
+            for (String termo : termos) {
+                Map<Long, Integer> topicos = ocorrencias.get(termo);
+                if (topicos == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (total - topicos.size() + 0.5) / (topicos.size() + 0.5));
+                topicos.forEach((id, frequencia) -> {
+                    double normalizacao = K1 * (1 - B + B * documentos.get(id).tamanho / tamanhoMedio);
+                    pontuacoes.merge(id, idf * frequencia * (K1 + 1) / (frequencia + normalizacao), Double::sum);
+                });
+            }
+        } finally {
+            trava.readLock().unlock();
+        }
+        return melhores(pontuacoes, limite);
+    }
+
+    public int tamanho() {
+        trava.readLock().lock();
+        try {
+            return documentos.size();
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    void iniciarReconstrucao() {
+        trava.writeLock().lock();
+        try {
+            alteradosDuranteAReconstrucao = new HashSet<>();
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    //Um tópico lido pela reconstrução pode ter sido alterado (ou removido) depois da leitura; nesse caso o que
+    //vale é o que o evento já colocou no índice.
+    void indexarDaReconstrucao(Long id, String titulo, String mensagem) {
+        trava.writeLock().lock();
+        try {
+            if (alteradosDuranteAReconstrucao == null || !alteradosDuranteAReconstrucao.contains(id)) {
+                retirar(id);
+                incluir(id, titulo, mensagem);
+            }
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    void terminarReconstrucao() {
+        trava.writeLock().lock();
+        try {
+            alteradosDuranteAReconstrucao = null;
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    private void marcarAlterado(Long id) {
+        if (alteradosDuranteAReconstrucao != null) {
+            alteradosDuranteAReconstrucao.add(id);
+        }
+    }
+
+    private void incluir(Long id, String titulo, String mensagem) {
+        Map<String, Integer> frequencias = new HashMap<>();
+        Tokenizador.termos(titulo).forEach(termo -> frequencias.merge(termo, PESO_DO_TITULO, Integer::sum));
+        Tokenizador.termos(mensagem).forEach(termo -> frequencias.merge(termo, 1, Integer::sum));
+        int tamanho = frequencias.values().stream().mapToInt(Integer::intValue).sum();
+
+        frequencias.forEach((termo, frequencia) -> ocorrencias.computeIfAbsent(termo, t -> new HashMap<>()).put(id, frequencia));
+        documentos.put(id, new Documento(frequencias.keySet().toArray(new String[0]), tamanho));
+        somaDosTamanhos += tamanho;
+    }
+
+    private void retirar(Long id) {
+        Documento documento = documentos.remove(id);
+        if (documento == null) {
+            return;
+        }
+        for (String termo : documento.termos) {
+            Map<Long, Integer> topicos = ocorrencias.get(termo);
+            topicos.remove(id);
+            if (topicos.isEmpty()) {
+                ocorrencias.remove(termo);
+            }
+        }
+        somaDosTamanhos -= documento.tamanho;
+    }
+
+    //só os "limite" maiores ficam na fila, então não é preciso ordenar todos os tópicos encontrados
+    private static List<TopicoEncontrado> melhores(Map<Long, Double> pontuacoes, int limite) {
+        Comparator<TopicoEncontrado> porRelevancia = Comparator.comparingDouble(TopicoEncontrado::getRelevancia)
+                .thenComparing(TopicoEncontrado::getId);
+        PriorityQueue<TopicoEncontrado> fila = new PriorityQueue<>(limite + 1, porRelevancia);
+        pontuacoes.forEach((id, relevancia) -> {
+            fila.add(new TopicoEncontrado(id, relevancia));
+            if (fila.size() > limite) {
+                fila.poll();
+            }
+        });
+        List<TopicoEncontrado> resultado = new ArrayList<>(fila);
+        resultado.sort(porRelevancia.reversed());
+        return resultado;
+    }
+
+    private static class Documento {
+
+        private final String[] termos;
+        private final int tamanho;
+
+        Documento(String[] termos, int tamanho) {
+            this.termos = termos;
+            this.tamanho = tamanho;
+        }
+    }
+
+    @Data
+    public static class TopicoEncontrado {
+
+        private final Long id;
+        private final double relevancia;
+
+    }
+}
@@ -0,0 +1,96 @@
+package br.com.alura.forum.busca;
+
+import br.com.alura.forum.evento.TopicoAlteradoEvento;
+import br.com.alura.forum.evento.TopicosImportadosEvento;
+import br.com.alura.forum.repository.TopicoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mantém o IndiceDeTopicos igual ao banco.
+ *
+ * Na subida, o índice é montado lendo todos os tópicos em lotes (por id, sem OFFSET), numa thread separada para não
+ * atrasar a aplicação; o progresso vai para o log e para a métrica forum.busca.reconstrucao.lidos. Depois disso,
+ * cada cadastro, alteração e remoção atualiza só o seu tópico, após o commit.
+ */
+@Component
+public class ManutencaoDoIndiceDeBusca {
+
+    private static final Logger log = LoggerFactory.getLogger(ManutencaoDoIndiceDeBusca.class);
+    static final int TAMANHO_DO_LOTE = 1000;
+
+    private final IndiceDeTopicos indice;
+    private final TopicoRepository topicoRepository;
+    private final AtomicLong lidos = new AtomicLong();
+
+    @Value("${forum.busca.reconstrucao.na-subida:true}")
+    private boolean reconstruirNaSubida;
+
+    public ManutencaoDoIndiceDeBusca(IndiceDeTopicos indice, TopicoRepository topicoRepository, MeterRegistry registry) {
+        this.indice = indice;
+        this.topicoRepository = topicoRepository;
+        registry.gauge("forum.busca.reconstrucao.lidos", lidos);
+    }
+
+    @TransactionalEventListener
+    public void topicoAlterado(TopicoAlteradoEvento evento) {
+        if (evento.getTipo() == TopicoAlteradoEvento.Tipo.REMOVIDO) {
+            indice.remover(evento.getIdTopico());
+        } else {
+            indice.indexar(evento.getIdTopico(), evento.getTitulo(), evento.getMensagem());
+        }
+    }
+
+    @TransactionalEventListener
+    public void topicosImportados(TopicosImportadosEvento evento) {
+        evento.getTopicos().forEach(this::topicoAlterado);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void naSubida() {
+        if (!reconstruirNaSubida) {
+            return;
+        }
+        Thread reconstrucao = new Thread(this::reconstruir, "indice-de-busca");
+        reconstrucao.setDaemon(true);
+        reconstrucao.start();
+    }
+
+    void reconstruir() {
+        long inicio = System.currentTimeMillis();
+        long total = topicoRepository.count();
+        log.info("Índice de busca: indexando {} tópico(s)", total);
+        indice.iniciarReconstrucao();
+        lidos.set(0);
+        try {
+            Long ultimoId = 0L;
+            List<Object[]> lote;
+            do {
+                lote = topicoRepository.buscarParaIndexar(ultimoId, PageRequest.of(0, TAMANHO_DO_LOTE));
+                for (Object[] topico : lote) {
+                    ultimoId = (Long) topico[0];
+                    indice.indexarDaReconstrucao(ultimoId, (String) topico[1], (String) topico[2]);
+                }
+                long lidosAteAgora = lidos.addAndGet(lote.size());
+                if (!lote.isEmpty()) {
+                    log.info("Índice de busca: {} de {} tópico(s) indexados", lidosAteAgora, total);
+                }
+            } while (lote.size() == TAMANHO_DO_LOTE);
+            log.info("Índice de busca pronto: {} tópico(s) em {} ms", indice.tamanho(), System.currentTimeMillis() - inicio);
+        } catch (RuntimeException e) {
+            log.error("Falha ao montar o índice de busca; as buscas só vão encontrar os tópicos alterados daqui em diante", e);
+        } finally {
+            indice.terminarReconstrucao();
+        }
+    }
+}
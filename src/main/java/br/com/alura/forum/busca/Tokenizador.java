@@ -0,0 +1,47 @@
+package br.com.alura.forum.busca;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Quebra um texto em termos para o índice de busca: tudo em minúsculas e sem acento ("Não" e "nao" viram o
+ * mesmo termo), separado em tudo que não é letra ou número, sem as palavras muito comuns do português
+ * (stopwords), que aparecem em quase todo tópico e não ajudam a ordenar o resultado.
+ *
+ * O mesmo tokenizador é usado para indexar e para a consulta, senão os termos não batem.
+ */
+public final class Tokenizador {
+
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Set<String> STOPWORDS = new HashSet<>(Arrays.asList(
+            "a", "ao", "aos", "as", "ate", "com", "como", "da", "das", "de", "do", "dos", "e", "ela", "ele",
+            "em", "entre", "era", "eu", "foi", "ha", "isso", "isto", "ja", "mais", "mas", "me", "meu", "minha",
+            "na", "nao", "nas", "nem", "no", "nos", "o", "os", "ou", "para", "pela", "pelo", "por", "pra", "que",
+            "se", "sem", "ser", "seu", "sua", "sao", "tem", "um", "uma", "voce"));
+
+    private Tokenizador() {
+    }
+
+    public static List<String> termos(String texto) {
+        List<String> termos = new ArrayList<>();
+        if (texto == null || texto.isEmpty()) {
+            return termos;
+        }
+        String normalizado = ACENTOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        for (String termo : SEPARADORES.split(normalizado)) {
+            if (termo.length() > 1 && !STOPWORDS.contains(termo)) {
+                termos.add(termo);
+            }
+        }
+        return termos;
+    }
+}
@@ -0,0 +1,195 @@
+package br.com.alura.forum.config.cache;
+
+import br.com.alura.forum.evento.RespostaAlteradaEvento;
+import br.com.alura.forum.evento.TopicoAlteradoEvento;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache opcional (forum.cache.respostas.habilitado) das respostas já serializadas da listagem e do detalhe.
+ *
+ * O cache listaDeTopicos guarda a Page<TopicoDto>, que o Jackson ainda converte em JSON a cada requisição. Aqui fica
+ * o resultado final: os bytes do JSON e a versão compactada com gzip. Um acerto devolve um ResponseEntity<byte[]>,
+ * que o Spring copia direto para o output stream da resposta (ByteArrayHttpMessageConverter), sem serializar nada.
+ *
+ * A invalidação segue a do listaDeTopicos: a chave da listagem leva a geração do escopo (ChaveDaListagem), e a do
+ * detalhe leva a geração da faixa do tópico. As duas são lidas antes da consulta, então uma resposta montada antes
+ * de um commit fica com a geração antiga e não é mais encontrada. Com um contador por faixa (e não por tópico) a
+ * memória não cresce com o número de tópicos; uma escrita só faz os outros tópicos da mesma faixa perderem o cache.
+ * As respostas com a geração antiga não são procuradas uma a uma: como não são mais encontradas, o Caffeine as
+ * descarta pelo peso (ou pela expiração).
+ *
+ * O JSON e o gzip são representações diferentes do mesmo recurso, então cada um tem o seu ETag: o do gzip leva o
+ * sufixo "-gz". No If-None-Match, os dois valem (naoModificado).
+ *
+ * O limite é em bytes (forum.cache.respostas.bytes), e o Caffeine mantém as respostas mais pedidas.
+ */
+@Component
+public class CacheDeRespostasSerializadas {
+
+    static final int FAIXAS = 1024;
+    // abaixo disso o gzip quase não diminui o corpo, e o cabeçalho dele ainda soma uns 20 bytes
+    static final int TAMANHO_MINIMO_PARA_GZIP = 1024;
+    private static final String GZIP = "gzip";
+    private static final String SUFIXO_GZIP = "-gz";
+
+    private final boolean habilitado;
+    private final ObjectMapper objectMapper;
+    private final Cache<Object, RespostaSerializada> respostas;
+    private final AtomicLongArray geracoesDosTopicos = new AtomicLongArray(FAIXAS);
+    private final AtomicLongArray avancosDosTopicos = new AtomicLongArray(FAIXAS); // quando cada faixa avançou (ms)
+
+    public CacheDeRespostasSerializadas(ObjectMapper objectMapper, MeterRegistry registry,
+                                        @Value("${forum.cache.respostas.habilitado}") boolean habilitado,
+                                        @Value("${forum.cache.respostas.bytes}") long bytes,
+                                        @Value("${forum.cache.respostas.expiracao}") long expiracao) {
+        this.habilitado = habilitado;
+        this.objectMapper = objectMapper;
+        this.respostas = Caffeine.newBuilder()
+                .maximumWeight(bytes)
+                .weigher((Object chave, RespostaSerializada resposta) -> resposta.getJson().length
+                        + (resposta.getGzip() == null ? 0 : resposta.getGzip().length))
+                .expireAfterWrite(expiracao, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, respostas, "respostasSerializadas");
+    }
+
+    public boolean habilitado() {
+        return habilitado;
+    }
+
+    public ChaveDoDetalhe chaveDoTopico(Long id) {
+        return new ChaveDoDetalhe(id, geracoesDosTopicos.get(faixa(id)));
+    }
+
+    public RespostaSerializada buscar(Object chave) {
+        return respostas.getIfPresent(chave);
+    }
+
+    //Leituras simultâneas da mesma chave esperam uma única montagem, como o sync = true do listaDeTopicos
+    public RespostaSerializada buscar(Object chave, Supplier<RespostaSerializada> montar) {
+        return respostas.get(chave, c -> montar.get());
+    }
+
+    public RespostaSerializada guardar(Object chave, Object corpo, String etag, String nomeCurso) {
+        RespostaSerializada resposta = serializar(corpo, etag, nomeCurso);
+        respostas.put(chave, resposta);
+        return resposta;
+    }
+
+    public RespostaSerializada serializar(Object corpo, String etag, String nomeCurso) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(corpo); // o Jackson sempre grava em UTF-8
+            return new RespostaSerializada(json, json.length < TAMANHO_MINIMO_PARA_GZIP ? null : compactar(json), etag, nomeCurso);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Não foi possível serializar a resposta", e);
+        }
+    }
+
+    //O Vary avisa aos caches no caminho que o corpo depende do Accept-Encoding
+    public static ResponseEntity<byte[]> responder(RespostaSerializada resposta, WebRequest request) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (resposta.getGzip() != null && aceitaGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            return ok.eTag(etagDoGzip(resposta.getEtag())).header(HttpHeaders.CONTENT_ENCODING, GZIP).body(resposta.getGzip());
+        }
+        return ok.eTag(resposta.getEtag()).body(resposta.getJson());
+    }
+
+    //Compara o If-None-Match com o ETag do JSON ou, se o cliente guardou a versão compactada, com o do gzip; o 304
+    //devolve o mesmo ETag que o cliente mandou.
+    public static boolean naoModificado(WebRequest request, String etag) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        // a comparação do If-None-Match é fraca: o prefixo W/ não conta
+        if (ifNoneMatch != null && ifNoneMatch.contains(etagDoGzip(etag).replaceFirst("^W/", ""))) {
+            return request.checkNotModified(etagDoGzip(etag));
+        }
+        return request.checkNotModified(etag);
+    }
+
+    static String etagDoGzip(String etag) {
+        return etag.substring(0, etag.length() - 1) + SUFIXO_GZIP + "\"";
+    }
+
+    @TransactionalEventListener
+    public void topicoAlterado(TopicoAlteradoEvento evento) {
+        invalidar(evento.getIdTopico());
+    }
+
+    @TransactionalEventListener
+    public void respostaAlterada(RespostaAlteradaEvento evento) {
+        invalidar(evento.getIdTopico());
+    }
+
+    //A geração da listagem quem avança é o InvalidacaoDoCacheDeTopicos. Aqui só avança a faixa do tópico; o detalhe
+    //dele sai na hora porque a chave antiga é conhecida, sem percorrer o cache.
+    private void invalidar(Long idTopico) {
+        if (idTopico != null) {
+            long anterior = geracoesDosTopicos.getAndIncrement(faixa(idTopico));
+            avancosDosTopicos.set(faixa(idTopico), System.currentTimeMillis());
+            respostas.invalidate(new ChaveDoDetalhe(idTopico, anterior));
+        }
+    }
+
+    // se a faixa do tópico avançou há pouco: o detalhe lido agora de uma réplica pode não ter a escrita
+    public boolean alteradoHaMenosDe(Long idTopico, long janela) {
+        return System.currentTimeMillis() - avancosDosTopicos.get(faixa(idTopico)) < janela;
+    }
+
+    static boolean aceitaGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String codificacao : acceptEncoding.split(",")) {
+            String[] partes = codificacao.trim().split(";");
+            if (partes[0].trim().equalsIgnoreCase(GZIP)) {
+                return partes.length == 1 || !partes[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static byte[] compactar(byte[] json) {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(saida)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return saida.toByteArray();
+    }
+
+    private static int faixa(Long id) {
+        return (int) Math.floorMod(id, (long) FAIXAS);
+    }
+
+    @Data
+    public static class ChaveDoDetalhe {
+
+        private final Long id;
+        private final long geracao;
+
+    }
+}
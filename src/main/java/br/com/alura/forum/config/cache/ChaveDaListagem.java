@@ -0,0 +1,13 @@
+package br.com.alura.forum.config.cache;
+
+import lombok.Data;
+import org.springframework.data.domain.Pageable;
+
+@Data
+public class ChaveDaListagem {
+
+    private final String escopo;
+    private final long geracao;
+    private final Pageable paginacao;
+
+}
@@ -0,0 +1,32 @@
+package br.com.alura.forum.config.cache;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+
+/**
+ * Gera a chave do cache listaDeTopicos a partir dos parâmetros de TopicosController.lista
+ * (nomeCurso, paginacao), acrescentando a geração atual do escopo. A paginação entra na chave já
+ * normalizada, a mesma que o método usa na consulta.
+ */
+@Component("chaveListaDeTopicos")
+public class ChaveListaDeTopicosGenerator implements KeyGenerator {
+
+    private final GeracoesDoCache geracoes;
+
+    public ChaveListaDeTopicosGenerator(GeracoesDoCache geracoes) {
+        this.geracoes = geracoes;
+    }
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        return chave((String) params[0], (Pageable) params[1]);
+    }
+
+    public ChaveDaListagem chave(String nomeCurso, Pageable paginacao) {
+        String escopo = GeracoesDoCache.escopo(nomeCurso);
+        return new ChaveDaListagem(escopo, geracoes.geracao(escopo), PaginacaoDaListagem.normalizar(paginacao));
+    }
+}
@@ -0,0 +1,34 @@
+package br.com.alura.forum.config.cache;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * ETag de uma página da listagem: o escopo, a geração atual dele e a paginação normalizada. Qualquer escrita no
+ * escopo avança a geração (InvalidacaoDoCacheDeTopicos), então o ETag muda junto com o conteúdo, sem precisar
+ * montar a página para descobrir isso.
+ *
+ * As gerações só existem na memória desta instância e recomeçam do zero a cada subida. Por isso o ETag leva
+ * também uma época sorteada na subida: um ETag de antes de um restart (ou de outra instância) nunca coincide
+ * com um atual, e o cliente recebe a página inteira em vez de um 304 errado.
+ */
+@Component
+public class EtagDaListagem {
+
+    private final String epoca = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final GeracoesDoCache geracoes;
+
+    public EtagDaListagem(GeracoesDoCache geracoes) {
+        this.geracoes = geracoes;
+    }
+
+    public String etag(String nomeCurso, Pageable paginacao) {
+        String escopo = GeracoesDoCache.escopo(nomeCurso);
+        Pageable normalizada = PaginacaoDaListagem.normalizar(paginacao);
+        int pagina = Objects.hash(escopo, normalizada.getPageNumber(), normalizada.getPageSize(), normalizada.getSort());
+        return "\"l-" + epoca + "-" + geracoes.geracao(escopo) + "-" + Integer.toHexString(pagina) + "\"";
+    }
+}
@@ -0,0 +1,43 @@
+package br.com.alura.forum.config.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Número de geração de cada escopo do cache de listagem: a listagem geral e a de cada curso.
+ * A geração faz parte da chave do cache, então avançar a geração de um escopo faz todas as páginas
+ * antigas dele deixarem de ser encontradas, sem mexer nas páginas dos outros cursos.
+ *
+ * Também guarda quando cada escopo avançou: logo depois disso, uma réplica atrasada ainda pode não ter a escrita,
+ * e a página lida dela ficaria no cache com a geração nova (ver ListagemDeTopicosService).
+ */
+@Component
+public class GeracoesDoCache {
+
+    public static final String GERAL = "geral";
+
+    private final ConcurrentMap<String, AtomicLong> geracoes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> avancos = new ConcurrentHashMap<>();
+
+    public static String escopo(String nomeCurso) {
+        return nomeCurso == null ? GERAL : "curso:" + nomeCurso;
+    }
+
+    public long geracao(String escopo) {
+        AtomicLong geracao = geracoes.get(escopo);
+        return geracao == null ? 0 : geracao.get();
+    }
+
+    public void avancar(String escopo) {
+        geracoes.computeIfAbsent(escopo, e -> new AtomicLong()).incrementAndGet();
+        avancos.put(escopo, System.currentTimeMillis());
+    }
+
+    public boolean avancouHaMenosDe(String escopo, long janela) {
+        Long avanco = avancos.get(escopo);
+        return avanco != null && System.currentTimeMillis() - avanco < janela;
+    }
+}
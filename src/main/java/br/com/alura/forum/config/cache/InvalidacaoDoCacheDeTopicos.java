@@ -0,0 +1,55 @@
+package br.com.alura.forum.config.cache;
+
+import br.com.alura.forum.evento.RespostaAlteradaEvento;
+import br.com.alura.forum.evento.TopicoAlteradoEvento;
+import br.com.alura.forum.evento.TopicosImportadosEvento;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Substitui o @CacheEvict(allEntries = true): uma escrita só invalida a listagem geral e a do curso do tópico.
+ *
+ * Com a ordenação padrão (id decrescente), um tópico novo entra no topo e desloca todos os registros das
+ * páginas seguintes, assim como uma remoção. Por isso o escopo inteiro do curso é invalidado, e não só a
+ * página 0. As listagens dos demais cursos continuam no cache.
+ *
+ * A geração só avança depois do commit. Uma leitura que começou antes dele grava a página com a geração
+ * antiga, que ninguém mais consulta, então uma página desatualizada nunca é servida.
+ */
+@Component
+public class InvalidacaoDoCacheDeTopicos {
+
+    public static final String LISTA_DE_TOPICOS = "listaDeTopicos";
+
+    private final GeracoesDoCache geracoes;
+
+    public InvalidacaoDoCacheDeTopicos(GeracoesDoCache geracoes) {
+        this.geracoes = geracoes;
+    }
+
+    @TransactionalEventListener
+    public void topicoAlterado(TopicoAlteradoEvento evento) {
+        invalidar(GeracoesDoCache.escopo(evento.getNomeCurso()));
+        invalidar(GeracoesDoCache.GERAL);
+    }
+
+    // um lote da importação avança cada curso do lote uma vez só, não importa quantos tópicos ele tenha
+    @TransactionalEventListener
+    public void topicosImportados(TopicosImportadosEvento evento) {
+        evento.getNomesDosCursos().forEach(nomeCurso -> invalidar(GeracoesDoCache.escopo(nomeCurso)));
+        invalidar(GeracoesDoCache.GERAL);
+    }
+
+    // a listagem mostra (e pode ser ordenada por) quantidadeDeRespostas e ultimaAtividade
+    @TransactionalEventListener
+    public void respostaAlterada(RespostaAlteradaEvento evento) {
+        invalidar(GeracoesDoCache.escopo(evento.getNomeCurso()));
+        invalidar(GeracoesDoCache.GERAL);
+    }
+
+    //Só avança a geração: as páginas das gerações antigas não são mais encontradas, e o maximumSize e o
+    //expireAfterWrite do cache as descartam, sem percorrer o cache a cada escrita.
+    private void invalidar(String escopo) {
+        geracoes.avancar(escopo);
+    }
+}
@@ -0,0 +1,56 @@
+package br.com.alura.forum.config.cache;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Normaliza a paginação recebida na listagem antes de ela virar consulta e chave de cache.
+ * Sem isso, qualquer cliente cria uma entrada nova no cache só variando size, sort ou a ordem dos
+ * parâmetros. O tamanho é limitado, só as propriedades da lista abaixo podem ser usadas na ordenação
+ * (as demais são ignoradas) e as repetidas são descartadas.
+ */
+public final class PaginacaoDaListagem {
+
+    public static final int TAMANHO_MAXIMO = 100;
+
+    // páginas mais fundas que essa quase não se repetem, não vale a pena ocupar o cache com elas
+    public static final int PAGINAS_EM_CACHE = 20;
+
+    private static final Set<String> ORDENACOES_PERMITIDAS = Set.of("id", "titulo", "dataCriacao",
+            "quantidadeDeRespostas", "ultimaAtividade");
+    private static final Sort ORDENACAO_PADRAO = Sort.by(Sort.Direction.DESC, "id");
+
+    private PaginacaoDaListagem() {
+    }
+
+    public static Pageable normalizar(Pageable paginacao) {
+        int tamanho = Math.max(1, Math.min(paginacao.getPageSize(), TAMANHO_MAXIMO));
+
+        Map<String, Sort.Order> ordens = new LinkedHashMap<>();
+        paginacao.getSort().stream()
+                .filter(ordem -> ORDENACOES_PERMITIDAS.contains(ordem.getProperty()))
+                .forEach(ordem -> ordens.putIfAbsent(ordem.getProperty(), new Sort.Order(ordem.getDirection(), ordem.getProperty())));
+        if (ordens.isEmpty()) {
+            return PageRequest.of(paginacao.getPageNumber(), tamanho, ORDENACAO_PADRAO);
+        }
+        // quantidadeDeRespostas e titulo se repetem entre tópicos: o id desempata, assim a ordem entre as
+        // páginas é sempre a mesma (e os índices são em (coluna, id))
+        if (!ordens.containsKey("id")) {
+            Sort.Direction ultima = new ArrayList<>(ordens.values()).get(ordens.size() - 1).getDirection();
+            ordens.put("id", new Sort.Order(ultima, "id"));
+        }
+        Sort ordenacao = Sort.by(new ArrayList<>(ordens.values()));
+
+        return PageRequest.of(paginacao.getPageNumber(), tamanho, ordenacao);
+    }
+
+    public static boolean cacheavel(Pageable paginacao) {
+        return paginacao.getPageNumber() < PAGINAS_EM_CACHE;
+    }
+}
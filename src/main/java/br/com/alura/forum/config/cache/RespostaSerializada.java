@@ -0,0 +1,18 @@
+package br.com.alura.forum.config.cache;
+
+import lombok.Data;
+
+/**
+ * Corpo de uma resposta já convertido em JSON (UTF-8) e, quando compensa, também já compactado com gzip,
+ * junto com o ETag dela. O nomeCurso é o do tópico, no caso do detalhe: um acerto no cache ainda conta como
+ * visualização.
+ */
+@Data
+public class RespostaSerializada {
+
+    private final byte[] json;
+    private final byte[] gzip; // null quando o JSON é pequeno demais para valer a compactação
+    private final String etag;
+    private final String nomeCurso;
+
+}
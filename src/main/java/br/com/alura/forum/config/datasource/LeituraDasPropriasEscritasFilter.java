@@ -0,0 +1,78 @@
+package br.com.alura.forum.config.datasource;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Leitura das próprias escritas por cliente: quando uma requisição escreve no banco, a resposta leva o instante do
+ * commit no cookie forum-escrita e no cabeçalho X-Forum-Escrita. Nas requisições seguintes do mesmo cliente que
+ * trouxerem esse instante (no cookie, ou no cabeçalho para quem não guarda cookies), até forum.datasource.replicas.janela
+ * ms depois dele, as leituras vão para o primário. Os outros clientes continuam lendo das réplicas.
+ *
+ * Escritas fora de uma requisição (a gravação das visualizações, as tarefas agendadas) não mudam para onde vão as
+ * leituras de ninguém.
+ */
+public class LeituraDasPropriasEscritasFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE = "forum-escrita";
+    public static final String CABECALHO = "X-Forum-Escrita";
+
+    private final long janela;
+    private final ThreadLocal<HttpServletResponse> respostaAtual = new ThreadLocal<>();
+
+    public LeituraDasPropriasEscritasFilter(long janela) {
+        this.janela = janela;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Boolean anterior = RoteamentoDeLeituras.lerNoPrimario(escreveuHaPouco(request));
+        respostaAtual.set(response);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            respostaAtual.remove();
+            RoteamentoDeLeituras.restaurar(anterior);
+        }
+    }
+
+    //Ligado no RoteamentoDeLeituras.setAoConfirmarEscrita. Depois do commit, o resto da requisição também lê do primário.
+    void escritaConfirmada(long quando) {
+        HttpServletResponse resposta = respostaAtual.get();
+        if (resposta == null || janela <= 0) {
+            return;
+        }
+        RoteamentoDeLeituras.lerNoPrimario(true);
+        if (!resposta.isCommitted()) {
+            Cookie cookie = new Cookie(COOKIE, Long.toString(quando));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (janela + 999) / 1000));
+            resposta.addCookie(cookie);
+            resposta.setHeader(CABECALHO, Long.toString(quando));
+        }
+    }
+
+    // um instante no futuro (o relógio de outra instância adiantado) conta como agora e não estica a janela
+    private boolean escreveuHaPouco(HttpServletRequest request) {
+        Cookie cookie = WebUtils.getCookie(request, COOKIE);
+        String valor = cookie != null ? cookie.getValue() : request.getHeader(CABECALHO);
+        if (valor == null || janela <= 0) {
+            return false;
+        }
+        long agora = System.currentTimeMillis();
+        try {
+            return agora < Math.min(Long.parseLong(valor.trim()), agora) + janela;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
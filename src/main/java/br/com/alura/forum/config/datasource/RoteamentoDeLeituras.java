@@ -0,0 +1,239 @@
+package br.com.alura.forum.config.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Escolhe o banco de cada conexão: as transações @Transactional(readOnly = true) vão para uma das réplicas, em
+ * rodízio, e todo o resto (escritas, transações normais, comandos fora de transação) vai para o primário.
+ *
+ * A escolha é feita quando a conexão é de fato usada. Por isso este DataSource fica atrás de um
+ * LazyConnectionDataSourceProxy: o gerenciador de transação pede a conexão no começo da transação, antes de
+ * marcar a transação como somente leitura, e o proxy só busca a conexão real no primeiro comando.
+ *
+ * Leitura das próprias escritas: a réplica recebe as alterações do primário com algum atraso. Uma leitura feita
+ * dentro de noPrimario(...) (ou com a thread marcada pelo LeituraDasPropriasEscritasFilter) vai para o primário
+ * mesmo sendo somente leitura. Quando uma transação que de fato escreveu (um insert, update ou delete, e não só uma
+ * transação sem readOnly) faz o commit, o aviso aoConfirmarEscrita recebe o instante do commit; o filtro devolve esse
+ * instante para o cliente, e só as leituras dele ficam no primário durante a janela.
+ *
+ * Réplica que falha na verificação periódica (forum.datasource.replicas.verificacao.intervalo) sai do rodízio até
+ * voltar a responder; sem nenhuma réplica no ar, as leituras vão para o primário.
+ */
+public class RoteamentoDeLeituras extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RoteamentoDeLeituras.class);
+    static final String PRIMARIO = "primario";
+    private static final int TEMPO_DA_VERIFICACAO = 2; // segundos
+    // os métodos do JDBC que só servem para escrever; o execute(...) escreveu quando não devolve um ResultSet
+    private static final Set<String> ESCRITAS = Set.of("executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+    private static final ThreadLocal<Boolean> NO_PRIMARIO = new ThreadLocal<>();
+
+    private final DataSource primario;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger proxima = new AtomicInteger();
+    private volatile LongConsumer aoConfirmarEscrita = quando -> { };
+
+    public RoteamentoDeLeituras(DataSource primario, List<DataSource> replicas) {
+        this.primario = primario;
+        Map<Object, Object> alvos = new HashMap<>();
+        alvos.put(PRIMARIO, primario);
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = new Replica("replica-" + i, replicas.get(i));
+            this.replicas.add(replica);
+            alvos.put(replica.nome, replica.dataSource);
+        }
+        setTargetDataSources(alvos);
+        setDefaultTargetDataSource(primario);
+    }
+
+    //As leituras feitas dentro da função vão para o primário. Serve para o que não pode vir de uma réplica atrasada,
+    //como uma página que vai para o cache logo depois de uma escrita (ver ListagemDeTopicosService).
+    public static <T> T noPrimario(Supplier<T> leitura) {
+        Boolean anterior = lerNoPrimario(true);
+        try {
+            return leitura.get();
+        } finally {
+            restaurar(anterior);
+        }
+    }
+
+    // marca a thread e devolve a marca anterior, para o restaurar(...) no finally
+    static Boolean lerNoPrimario(boolean noPrimario) {
+        Boolean anterior = NO_PRIMARIO.get();
+        if (noPrimario) {
+            NO_PRIMARIO.set(Boolean.TRUE);
+        }
+        return anterior;
+    }
+
+    static void restaurar(Boolean anterior) {
+        if (anterior == null) {
+            NO_PRIMARIO.remove();
+        } else {
+            NO_PRIMARIO.set(anterior);
+        }
+    }
+
+    // chamado depois do commit de cada transação que escreveu, com o instante do commit
+    public void setAoConfirmarEscrita(LongConsumer aoConfirmarEscrita) {
+        this.aoConfirmarEscrita = aoConfirmarEscrita;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || NO_PRIMARIO.get() != null) {
+            return PRIMARIO;
+        }
+        int total = replicas.size();
+        int inicio = Math.floorMod(proxima.getAndIncrement(), Math.max(total, 1));
+        for (int i = 0; i < total; i++) {
+            Replica replica = replicas.get((inicio + i) % total);
+            if (replica.saudavel) {
+                return replica.nome;
+            }
+        }
+        return PRIMARIO;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return observarEscritas(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return observarEscritas(super.getConnection(username, password));
+    }
+
+    @Scheduled(fixedDelayString = "${forum.datasource.replicas.verificacao.intervalo}")
+    public void verificarReplicas() {
+        for (Replica replica : replicas) {
+            boolean saudavel;
+            try (Connection conexao = replica.dataSource.getConnection()) {
+                saudavel = conexao.isValid(TEMPO_DA_VERIFICACAO);
+            } catch (SQLException e) {
+                saudavel = false;
+            }
+            if (saudavel != replica.saudavel) {
+                if (saudavel) {
+                    log.info("Réplica {} voltou ao rodízio de leituras", replica.nome);
+                } else {
+                    log.warn("Réplica {} não respondeu e saiu do rodízio de leituras", replica.nome);
+                }
+            }
+            replica.saudavel = saudavel;
+        }
+    }
+
+    //Só as conexões de transações que podem escrever são observadas: os comandos criados por elas avisam
+    //registrarEscrita() quando escrevem. As leituras (e as réplicas) recebem a conexão sem intermediário.
+    private Connection observarEscritas(Connection conexao) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return conexao;
+        }
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, metodo, argumentos) -> {
+                    Object resultado = invocar(proxy, conexao, metodo, argumentos);
+                    if (resultado instanceof Statement && metodo.getReturnType().isInterface()) {
+                        return observarComando((Statement) resultado, metodo.getReturnType());
+                    }
+                    return resultado;
+                });
+    }
+
+    // o proxy implementa a mesma interface devolvida pela conexão: Statement, PreparedStatement ou CallableStatement
+    private Statement observarComando(Statement comando, Class<?> tipo) {
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{tipo},
+                (proxy, metodo, argumentos) -> {
+                    Object resultado = invocar(proxy, comando, metodo, argumentos);
+                    if (ESCRITAS.contains(metodo.getName())
+                            || (metodo.getName().equals("execute") && Boolean.FALSE.equals(resultado))) {
+                        registrarEscrita();
+                    }
+                    return resultado;
+                });
+    }
+
+    // equals e hashCode ficam com o proxy: o alvo não se reconhece nele
+    private static Object invocar(Object proxy, Object alvo, Method metodo, Object[] argumentos) throws Throwable {
+        switch (metodo.getName()) {
+            case "equals":
+                return proxy == argumentos[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                try {
+                    return metodo.invoke(alvo, argumentos);
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+        }
+    }
+
+    //Uma vez por transação: o aviso sai no commit. Uma transação desfeita não escreveu nada.
+    private void registrarEscrita() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                aoConfirmarEscrita.accept(System.currentTimeMillis());
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(RoteamentoDeLeituras.this);
+            }
+        });
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            fechar(replica.dataSource);
+        }
+        fechar(primario);
+    }
+
+    private static void fechar(DataSource dataSource) throws Exception {
+        if (dataSource instanceof AutoCloseable) {
+            ((AutoCloseable) dataSource).close();
+        }
+    }
+
+    private static class Replica {
+
+        private final String nome;
+        private final DataSource dataSource;
+        private volatile boolean saudavel = true;
+
+        Replica(String nome, DataSource dataSource) {
+            this.nome = nome;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package br.com.alura.forum.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Liga as leituras nas réplicas (RoteamentoDeLeituras) só quando forum.datasource.replicas.urls está preenchida;
+ * sem ela, o Spring Boot cria o DataSource de sempre, só com o spring.datasource.url.
+ *
+ * O primário usa as propriedades spring.datasource.* e o pool dele as spring.datasource.hikari.*, como o DataSource
+ * que o Spring Boot criaria. As réplicas copiam a configuração do pool do primário e usam o mesmo usuário e senha, a
+ * não ser que forum.datasource.replicas.username/password digam outra coisa, e abrem as conexões como somente leitura.
+ */
+@Configuration
+@ConditionalOnProperty("forum.datasource.replicas.urls")
+public class RoteamentoDeLeiturasConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primario(DataSourceProperties propriedades) {
+        HikariDataSource primario = propriedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primario.setPoolName("primario");
+        return primario;
+    }
+
+    @Bean
+    public RoteamentoDeLeituras roteamentoDeLeituras(HikariDataSource primario,
+                                                     @Value("${forum.datasource.replicas.urls}") List<String> urls,
+                                                     @Value("${forum.datasource.replicas.username:${spring.datasource.username:}}") String usuario,
+                                                     @Value("${forum.datasource.replicas.password:${spring.datasource.password:}}") String senha) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            primario.copyStateTo(replica);
+            replica.setPoolName("replica-" + i);
+            replica.setJdbcUrl(urls.get(i).trim());
+            replica.setUsername(usuario);
+            replica.setPassword(senha);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new RoteamentoDeLeituras(primario, replicas);
+    }
+
+    //Antes do Spring Security: o filtro de autenticação já lê o usuário do token, e essa leitura também é roteada.
+    @Bean
+    public FilterRegistrationBean<LeituraDasPropriasEscritasFilter> leituraDasPropriasEscritas(
+            RoteamentoDeLeituras roteamentoDeLeituras, @Value("${forum.datasource.replicas.janela}") long janela) {
+        LeituraDasPropriasEscritasFilter filtro = new LeituraDasPropriasEscritasFilter(janela);
+        roteamentoDeLeituras.setAoConfirmarEscrita(filtro::escritaConfirmada);
+        FilterRegistrationBean<LeituraDasPropriasEscritasFilter> registro = new FilterRegistrationBean<>(filtro);
+        registro.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registro;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(RoteamentoDeLeituras roteamentoDeLeituras) {
+        return new LazyConnectionDataSourceProxy(roteamentoDeLeituras);
+    }
+}
@@ -0,0 +1,54 @@
+package br.com.alura.forum.config.metricas;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Quantos comandos SQL cada requisição fez (ContadorDeConsultas), na distribuição forum.http.consultas, com o método
+ * e o padrão da url (/topicos/{id}, e não /topicos/42) como tags. Roda antes do Spring Security, então as consultas
+ * do filtro de autenticação também contam.
+ *
+ * A contagem é da thread da requisição. Requisições assíncronas (POST /auth, que valida a senha no executorDeLogin, e
+ * /topicos/exportacao, que escreve num WebAsyncTask) fazem o SQL em outra thread e não são registradas: a contagem
+ * daria perto de zero. O despacho assíncrono que devolve a resposta também não passa por aqui (o padrão do
+ * OncePerRequestFilter).
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ConsultasPorRequisicaoFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry registry;
+
+    public ConsultasPorRequisicaoFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ContadorDeConsultas.iniciar();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long consultas = ContadorDeConsultas.encerrar();
+            if (!request.isAsyncStarted()) {
+                Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                DistributionSummary.builder("forum.http.consultas")
+                        .tags("method", request.getMethod(), "uri", uri == null ? "UNKNOWN" : uri.toString())
+                        .register(registry)
+                        .record(consultas);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package br.com.alura.forum.config.metricas;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Conta os comandos SQL que o Hibernate prepara na thread atual, enquanto uma contagem estiver aberta
+ * (ConsultasPorRequisicaoFilter abre uma por requisição). Fica registrado no Hibernate como StatementInspector:
+ * ele vê cada SQL antes de ser preparado e devolve o mesmo SQL, sem alterar nada.
+ *
+ * Diferente das estatísticas do Hibernate (hibernate.generate_statistics), que são globais e custam em todas as
+ * consultas, aqui o custo é só um ThreadLocal, e a contagem é separada por requisição. Comandos do JdbcTemplate
+ * (importação, visualizações) não passam pelo Hibernate e não entram na conta, nem os comandos feitos em outras
+ * threads (executores, tarefas assíncronas), que não veem a contagem aberta.
+ */
+public class ContadorDeConsultas implements StatementInspector {
+
+    private static final ThreadLocal<long[]> CONSULTAS = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        long[] consultas = CONSULTAS.get();
+        if (consultas != null) {
+            consultas[0]++;
+        }
+        return sql;
+    }
+
+    public static void iniciar() {
+        CONSULTAS.set(new long[1]);
+    }
+
+    public static long encerrar() {
+        long[] consultas = CONSULTAS.get();
+        CONSULTAS.remove();
+        return consultas == null ? 0 : consultas[0];
+    }
+}
@@ -0,0 +1,16 @@
+package br.com.alura.forum.config.metricas;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+//Registra o ContadorDeConsultas no Hibernate (hibernate.session_factory.statement_inspector)
+@Configuration
+public class ContadorDeConsultasConfiguration {
+
+    @Bean
+    public HibernatePropertiesCustomizer contadorDeConsultas() {
+        return propriedades -> propriedades.put(AvailableSettings.STATEMENT_INSPECTOR, new ContadorDeConsultas());
+    }
+}
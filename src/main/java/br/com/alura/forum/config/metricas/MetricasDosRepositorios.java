@@ -0,0 +1,133 @@
+package br.com.alura.forum.config.metricas;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas por método dos repositórios (TopicoRepository, CursoRepository, UsuarioRepository e os demais).
+ *
+ * O tempo de cada método já é medido pelo Spring Boot, no timer spring.data.repository.invocations (tags
+ * repository, method, state). Aqui entram a quantidade de linhas devolvidas, na distribuição forum.repositorio.linhas
+ * (tags repositorio e metodo), e o log das chamadas lentas: acima de forum.repositorio.lenta.limite ms, uma fração
+ * delas (forum.repositorio.lenta.amostragem) vai para o log com os tipos dos parâmetros, para o log não virar ele
+ * mesmo um gargalo quando o banco inteiro fica lento. Os valores não vão para o log: alguns são dados pessoais, como o
+ * e-mail do UsuarioRepository.findByEmail.
+ *
+ * Streams (como o da exportação) não entram na contagem de linhas: elas ainda não foram lidas quando o método
+ * retorna.
+ */
+@Component
+public class MetricasDosRepositorios implements BeanPostProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(MetricasDosRepositorios.class);
+
+    // um BeanPostProcessor é criado antes dos outros beans: o MeterRegistry só é buscado na primeira chamada
+    private final ObjectProvider<MeterRegistry> registry;
+    private final long limiteDeLentidao;
+    private final double amostragem;
+
+    public MetricasDosRepositorios(ObjectProvider<MeterRegistry> registry,
+                                   @Value("${forum.repositorio.lenta.limite}") long limiteDeLentidao,
+                                   @Value("${forum.repositorio.lenta.amostragem}") double amostragem) {
+        this.registry = registry;
+        this.limiteDeLentidao = TimeUnit.MILLISECONDS.toNanos(limiteDeLentidao);
+        this.amostragem = amostragem;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport) {
+            ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(fabrica ->
+                    fabrica.addRepositoryProxyPostProcessor((proxy, repositorio) ->
+                            proxy.addAdvice(new Medicao(repositorio.getRepositoryInterface().getSimpleName()))));
+        }
+        return bean;
+    }
+
+    private class Medicao implements MethodInterceptor {
+
+        private final String repositorio;
+        // uma distribuição por método, registrada na primeira chamada dele
+        private final ConcurrentMap<Method, DistributionSummary> linhasPorMetodo = new ConcurrentHashMap<>();
+
+        Medicao(String repositorio) {
+            this.repositorio = repositorio;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocacao) throws Throwable {
+            long inicio = System.nanoTime();
+            Object resultado = invocacao.proceed();
+            long duracao = System.nanoTime() - inicio;
+
+            Method metodo = invocacao.getMethod();
+            long linhas = linhas(resultado);
+            if (linhas >= 0) {
+                linhasPorMetodo.computeIfAbsent(metodo, m -> DistributionSummary.builder("forum.repositorio.linhas")
+                        .tags("repositorio", repositorio, "metodo", m.getName())
+                        .register(registry.getObject()))
+                        .record(linhas);
+            }
+            if (duracao > limiteDeLentidao && ThreadLocalRandom.current().nextDouble() < amostragem) {
+                log.warn("Consulta lenta: {}.{} levou {} ms e devolveu {} linha(s); parâmetros: {}", repositorio,
+                        metodo.getName(), TimeUnit.NANOSECONDS.toMillis(duracao), linhas < 0 ? "?" : linhas,
+                        parametros(invocacao.getArguments()));
+            }
+            return resultado;
+        }
+    }
+
+    //Só o tipo de cada parâmetro (e o tamanho das coleções), nunca o valor: (String, PageRequest, List[3])
+    static String parametros(Object[] argumentos) {
+        StringJoiner tipos = new StringJoiner(", ", "(", ")");
+        for (Object argumento : argumentos) {
+            if (argumento == null) {
+                tipos.add("null");
+            } else if (argumento instanceof Collection) {
+                tipos.add(argumento.getClass().getSimpleName() + "[" + ((Collection<?>) argumento).size() + "]");
+            } else {
+                tipos.add(argumento.getClass().getSimpleName());
+            }
+        }
+        return tipos.toString();
+    }
+
+    //-1: não dá para saber sem consumir o resultado (Stream) ou não é uma lista de linhas (count, exists, update)
+    static long linhas(Object resultado) {
+        if (resultado == null) {
+            return 0;
+        }
+        if (resultado instanceof Collection) {
+            return ((Collection<?>) resultado).size();
+        }
+        if (resultado instanceof Slice) {
+            return ((Slice<?>) resultado).getNumberOfElements();
+        }
+        if (resultado instanceof Optional) {
+            return ((Optional<?>) resultado).isPresent() ? 1 : 0;
+        }
+        if (resultado instanceof Number || resultado instanceof Boolean || resultado instanceof java.util.stream.BaseStream) {
+            return -1;
+        }
+        return 1;
+    }
+}
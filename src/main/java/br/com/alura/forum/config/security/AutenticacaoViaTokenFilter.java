@@ -1,8 +1,7 @@
 package br.com.alura.forum.config.security;
 
 import antlr.Token;
-import br.com.alura.forum.modelo.Usuario;
-import br.com.alura.forum.repository.UsuarioRepository;
+import io.jsonwebtoken.Claims;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -16,12 +15,12 @@ import java.io.IOException;
 public class AutenticacaoViaTokenFilter extends OncePerRequestFilter {
 
     private TokenService tokenService;
-    private UsuarioRepository repository;
+    private CacheDeUsuariosAutenticados usuarios;
 
 
-    public AutenticacaoViaTokenFilter(TokenService tokenService,UsuarioRepository repository) {
+    public AutenticacaoViaTokenFilter(TokenService tokenService,CacheDeUsuariosAutenticados usuarios) {
         this.tokenService = tokenService;
-        this.repository = repository;
+        this.usuarios = usuarios;
     }
 
     //No nosso método principal do filter só chamo o autenticar se o token estiver válido. Se não estiver, não vai autenticar, vai seguir o fluxo da requisição e o Spring vai barrar. Agora está tudo implementado.
@@ -31,19 +30,21 @@ public class AutenticacaoViaTokenFilter extends OncePerRequestFilter {
 
         String token = recuperarToken(request);
 
-        boolean valido = tokenService.isTokenValido(token);
-        if(valido){
-            autenticarCliente(token);
-        }
+        //o token é verificado uma vez só e as informações dele (claims) seguem para a autenticação
+        tokenService.verificar(token).ifPresent(this::autenticarCliente);
 
         filterChain.doFilter(request,response);
 
         }
 //Na próxima requisição ele vai passar no filter de novo, pegar o token e fazer todo o processo. A autenticação é stateless. Em cada requisição eu reautentico o usuário só para executar aquela requisição.
-    private void autenticarCliente(String token) {
+    private void autenticarCliente(Claims claims) {
 
-        Long idUsuario = tokenService.getIdUsuario(token); // Peguei o id do token
-        Usuario usuario = repository.findById(idUsuario).get(); //recuperei o objeto usuário passando o id
+        //token com claims completas já traz nome e perfis; nos demais pego o id do token e recupero o usuário, do cache ou do banco
+        UsuarioAutenticado usuario = tokenService.getUsuarioAutenticado(claims)
+                .orElseGet(() -> usuarios.buscar(tokenService.getIdUsuario(claims)));
+        if (usuario == null) { // usuário removido depois que o token foi gerado
+            return;
+        }
 
         //criei o usernameauthenticationtoken passando o usuário, passando nulo na senha, porque não preciso dela, passando os perfis, e aí por fim chamei a classe do Spring que força a autenticação.
         UsernamePasswordAuthenticationToken authentication =
@@ -51,7 +52,8 @@ public class AutenticacaoViaTokenFilter extends OncePerRequestFilter {
         SecurityContextHolder.getContext().setAuthentication(authentication);
     }
 
-    private String recuperarToken(HttpServletRequest request) {
+    //package-private para o benchmark (AutenticacaoViaTokenFilterBenchmark)
+    String recuperarToken(HttpServletRequest request) {
 
         String token = request.getHeader("Authorization");
         if(token == null || token.isEmpty() || !token.startsWith("Bearer")) {
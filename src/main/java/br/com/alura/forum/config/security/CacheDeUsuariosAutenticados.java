@@ -0,0 +1,52 @@
+package br.com.alura.forum.config.security;
+
+import br.com.alura.forum.repository.UsuarioRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache dos usuários autenticados por id, usado pelo AutenticacaoViaTokenFilter para não ir ao banco
+ * (usuário e perfis) em toda requisição autenticada.
+ *
+ * As entradas expiram depois de forum.seguranca.usuarios.cache.expiracao e são invalidadas quando um
+ * Usuario ou Perfil é alterado pela aplicação (InvalidacaoDeUsuariosListener). Alterações feitas por
+ * fora, direto no banco, valem no máximo depois da expiração.
+ *
+ * Taxa de acerto e tempo de carga ficam nas métricas cache.* do actuator, com a tag
+ * cache=usuariosAutenticados.
+ */
+@Component
+public class CacheDeUsuariosAutenticados {
+
+    private final LoadingCache<Long, UsuarioAutenticado> usuarios;
+
+    public CacheDeUsuariosAutenticados(UsuarioRepository repository, MeterRegistry registry,
+                                       @Value("${forum.seguranca.usuarios.cache.maximo}") long maximo,
+                                       @Value("${forum.seguranca.usuarios.cache.expiracao}") long expiracao) {
+        // o loader devolve null para usuário inexistente, e o Caffeine não guarda esse resultado
+        this.usuarios = Caffeine.newBuilder()
+                .maximumSize(maximo)
+                .expireAfterWrite(expiracao, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build(id -> repository.findById(id).map(UsuarioAutenticado::new).orElse(null));
+        CaffeineCacheMetrics.monitor(registry, usuarios, "usuariosAutenticados");
+    }
+
+    public UsuarioAutenticado buscar(Long id) {
+        return usuarios.get(id);
+    }
+
+    public void invalidar(Long id) {
+        usuarios.invalidate(id);
+    }
+
+    public void invalidarTodos() {
+        usuarios.invalidateAll();
+    }
+}
@@ -0,0 +1,84 @@
+package br.com.alura.forum.config.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pool exclusivo do login (bulkhead). O login (POST /auth) é dominado pelo BCrypt, que de propósito gasta
+ * dezenas de milissegundos de CPU por senha; rodando aqui, uma enxurrada de logins não ocupa as threads do
+ * Tomcat que atendem o resto da API. A fila é limitada e, cheia, o login é recusado na hora.
+ *
+ * O pool fica encapsulado nesta classe e não é exposto como bean do tipo Executor: se fosse, o Spring Boot
+ * deixaria de criar o executor padrão da aplicação e passaria a usar este para outras tarefas.
+ *
+ * Métricas executor.* com a tag name=login (fila, threads ativas, tarefas concluídas).
+ */
+@Component
+public class ExecutorDeLogin {
+
+    private final ThreadPoolExecutor executor;
+
+    public ExecutorDeLogin(@Value("${forum.auth.login.threads}") int threads,
+                           @Value("${forum.auth.login.fila}") int fila,
+                           MeterRegistry registry) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(fila), new ThreadsDeLogin(), new ThreadPoolExecutor.AbortPolicy());
+        new ExecutorServiceMetrics(executor, "login", Tags.empty()).bindTo(registry);
+    }
+
+    //Lança RejectedExecutionException, sem esperar, quando a fila está cheia. Passado o timeout (ms), o resultado
+    //termina com TimeoutException e a tarefa sai da fila: o BCrypt de um cliente que já recebeu 503 não roda.
+    //Se ela já tiver começado, é interrompida, mas o hash em andamento (que não olha a interrupção) vai até o fim.
+    public <T> CompletableFuture<T> executar(Supplier<T> tarefa, long timeout) throws RejectedExecutionException {
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        Future<?> execucao = executor.submit(() -> {
+            if (resultado.isDone()) { // expirou enquanto estava na fila
+                return;
+            }
+            try {
+                resultado.complete(tarefa.get());
+            } catch (Throwable erro) {
+                resultado.completeExceptionally(erro);
+            }
+        });
+        resultado.orTimeout(timeout, TimeUnit.MILLISECONDS).whenComplete((valor, erro) -> {
+            if (erro instanceof TimeoutException) {
+                execucao.cancel(true);
+                executor.remove((Runnable) execucao); // libera o lugar na fila
+            }
+        });
+        return resultado;
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdown();
+    }
+
+    private static class ThreadsDeLogin implements ThreadFactory {
+
+        private final AtomicInteger contador = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable tarefa) {
+            Thread thread = new Thread(tarefa, "login-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
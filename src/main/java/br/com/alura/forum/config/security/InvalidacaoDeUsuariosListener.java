@@ -0,0 +1,54 @@
+package br.com.alura.forum.config.security;
+
+import br.com.alura.forum.modelo.Perfil;
+import br.com.alura.forum.modelo.Usuario;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Entity listener de Usuario e Perfil: quando um deles é alterado ou removido, tira do
+ * CacheDeUsuariosAutenticados quem foi afetado. A alteração de um Perfil pode atingir qualquer
+ * usuário, então limpa o cache inteiro. Conceder ou revogar um perfil (Usuario.perfis) também dispara o
+ * @PostUpdate do usuário, porque Usuario tem @Version.
+ *
+ * A invalidação espera o commit: se fosse feita antes, uma requisição simultânea poderia recarregar
+ * os dados antigos do banco e colocá-los de volta no cache.
+ *
+ * O Hibernate cria o listener pelo contêiner do Spring, por isso o @Autowired funciona. O cache é
+ * obtido só na hora do evento (ObjectProvider), porque ele depende do repositório, que ainda não
+ * existe quando o Hibernate instancia o listener.
+ */
+public class InvalidacaoDeUsuariosListener {
+
+    @Autowired
+    private ObjectProvider<CacheDeUsuariosAutenticados> cache;
+
+    @PostUpdate
+    @PostRemove
+    public void alterado(Object entidade) {
+        if (entidade instanceof Usuario) {
+            Long id = ((Usuario) entidade).getId();
+            depoisDoCommit(() -> cache.ifAvailable(usuarios -> usuarios.invalidar(id)));
+        } else if (entidade instanceof Perfil) {
+            depoisDoCommit(() -> cache.ifAvailable(CacheDeUsuariosAutenticados::invalidarTodos));
+        }
+    }
+
+    private void depoisDoCommit(Runnable invalidacao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidacao.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidacao.run();
+            }
+        });
+    }
+}
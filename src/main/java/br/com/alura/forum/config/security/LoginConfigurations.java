@@ -0,0 +1,21 @@
+package br.com.alura.forum.config.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Algoritmo de hash das senhas: BCrypt com a força (custo) configurável em forum.auth.bcrypt.forca.
+ * Cada aumento de 1 na força dobra o tempo do hash, que fica medido na métrica forum.login.hash.
+ */
+@Configuration
+public class LoginConfigurations {
+
+    @Bean
+    public PasswordEncoder passwordEncoder(@Value("${forum.auth.bcrypt.forca}") int forca, MeterRegistry registry) {
+        return new SenhaComMetricas(new BCryptPasswordEncoder(forca), registry.timer("forum.login.hash"));
+    }
+}
@@ -0,0 +1,33 @@
+package br.com.alura.forum.config.security;
+
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * PasswordEncoder que mede o tempo de cada hash (métrica forum.login.hash), delegando o trabalho ao BCrypt.
+ */
+public class SenhaComMetricas implements PasswordEncoder {
+
+    private final PasswordEncoder encoder;
+    private final Timer tempoDoHash;
+
+    public SenhaComMetricas(PasswordEncoder encoder, Timer tempoDoHash) {
+        this.encoder = encoder;
+        this.tempoDoHash = tempoDoHash;
+    }
+
+    @Override
+    public String encode(CharSequence senha) {
+        return tempoDoHash.record(() -> encoder.encode(senha));
+    }
+
+    @Override
+    public boolean matches(CharSequence senha, String hash) {
+        return tempoDoHash.record(() -> encoder.matches(senha, hash));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String hash) {
+        return encoder.upgradeEncoding(hash);
+    }
+}
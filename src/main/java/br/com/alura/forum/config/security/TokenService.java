@@ -1,18 +1,37 @@
 package br.com.alura.forum.config.security;
 
 import br.com.alura.forum.modelo.Usuario;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.impl.TextCodec;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Service
 public class TokenService {
 
+    private static final String CLAIM_NOME = "nome";
+    private static final String CLAIM_PERFIS = "perfis";
 
     @Value("${forum.jwt.expiration}") //Sintaxe para fazer injeção de dependências de propriedades do arquivo application.properties.
     private String expiration;
@@ -20,6 +39,31 @@ public class TokenService {
     @Value("${forum.jwt.secret}") //Sintaxe para azer injeção de dependências de propriedades do arquivo application.properties.
     private String secret;
 
+    //Quando ligado, o token também leva o nome e os perfis do usuário (claims assinadas) e o filtro monta a autenticação
+    //só com ele, sem consultar o banco. Em troca, uma mudança de perfil só vale para os tokens emitidos depois dela.
+    @Value("${forum.jwt.claims-completas}")
+    private boolean claimsCompletas;
+
+    @Value("${forum.jwt.cache.maximo}")
+    private long maximoEmCache;
+
+    @Value("${forum.jwt.cache.expiracao}")
+    private long expiracaoDoCache;
+
+    private byte[] chave;
+
+    private Cache<String, Claims> tokensVerificados;
+
+    //A chave de assinatura é derivada do secret uma vez só. O jjwt faz a mesma decodificação (Base64) quando recebe
+    //o secret como String, então os tokens já emitidos continuam válidos.
+    @PostConstruct
+    public void inicializar() {
+        this.chave = TextCodec.BASE64.decode(secret);
+        this.tokensVerificados = Caffeine.newBuilder()
+                .maximumSize(maximoEmCache)
+                .expireAfter(new ExpiracaoDoToken(TimeUnit.MILLISECONDS.toNanos(expiracaoDoCache)))
+                .build();
+    }
 
     public String gerarToken(Authentication authentication) {
 
@@ -29,30 +73,106 @@ public class TokenService {
 
 
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setIssuer("API do Fórum da Alura") //  Precisamos acertar alguma coisas. A primeira coisa vai ser o issuer. Quem é que está gerando o token. Vou colocar que foi a API do fórum da Alura, porque aí o cliente consegue identificar quem foi que fez a geração.
                 .setSubject(logado.getId().toString()) // vou colocar logado.getId e vou passar o id. Mas o id precisa que seja string.
                 .setIssuedAt(hoje) //Também preciso dizer qual foi a data de geração do token.Quando ele foi concedido
                 .setExpiration(dataExpiracao) // O token também tem uma data de validação, onde ele vai expirar, igual a sessão tradicional, para não ficar infinito, porque isso seria um risco de segurança. E tenho que passar uma data. Eu poderia pegar a data hoje, somar com trinta minutos, mas esse tempo, para não ficar no código, vou injetar em uma propriedade do application.properties chamada fórum.jwt.expiration= e passei um tempo em milissegundos. Coloquei um dia, só para ficar mais fácil no teste. Na prática, o ideal é que o tempo seja menor.
-                .signWith(SignatureAlgorithm.HS256,secret) //signWith-Especificacao JSON WEB TOKEN, um json precisa ser criptografado, determina o algoritmo de criptografia e a senha da aplicacao, utilizado para fazer assinatura e gerar o hash da aplicacao
-                .compact();// compacta e transforma em uma string
+                .signWith(SignatureAlgorithm.HS256,chave); //signWith-Especificacao JSON WEB TOKEN, um json precisa ser criptografado, determina o algoritmo de criptografia e a senha da aplicacao, utilizado para fazer assinatura e gerar o hash da aplicacao
 
-    }
+        if (claimsCompletas) {
+            builder.claim(CLAIM_NOME, logado.getNome())
+                    .claim(CLAIM_PERFIS, logado.getAuthorities().stream()
+                            .map(GrantedAuthority::getAuthority)
+                            .collect(Collectors.toList()));
+        }
 
-    public boolean isTokenValido(String token) {
+        return builder.compact();// compacta e transforma em uma string
 
+    }
+
+    //Verifica a assinatura e a expiração uma única vez e devolve as informações (claims) do token; vazio se for inválido.
+    //Tokens já verificados ficam num cache curto, com a chave sendo o hash SHA-256 do token (o token em si não fica em
+    //memória). A entrada nunca dura mais que o próprio token, então um token expirado não é aceito pelo cache.
+    public Optional<Claims> verificar(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+        String hash = hash(token);
+        Claims claims = tokensVerificados.getIfPresent(hash);
+        if (claims != null) {
+            return Optional.of(claims);
+        }
         try {
-            Jwts.parser().setSigningKey(this.secret).parseClaimsJws(token); // método devolve o Jws claims, que é um objeto onde consigo recuperar o token e as informações que setei dentro do token. Mas quando eu fizer essa chamada, se o token estiver válido, ele devolve o objeto. Se estiver inválido ou nulo, ele joga uma exception. Eu vou fazer um try catch, vou colocar o código dentro do try. Se ele rodou tudo ok, o token está válido. Se chegou na linha de baixo é porque o token está válido, retorna true, porque não quero recuperar nenhuma informação do token nesse método. Se deu alguma exception, ele vai entrar no false
-            return  true;
-        }catch (Exception e ){
-            return false;
+            claims = Jwts.parser().setSigningKey(chave).parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) { // token inválido, expirado ou mal formado
+            return Optional.empty();
         }
+        tokensVerificados.put(hash, claims);
+        return Optional.of(claims);
+    }
+
+    public boolean isTokenValido(String token) {
+        return verificar(token).isPresent();
     }
 
     public Long getIdUsuario(String token) {
-        Claims claims = Jwts.parser().setSigningKey(this.secret).parseClaimsJws(token).getBody();// método devolve o Jws claims, que é um objeto onde consigo recuperar o token e as informações que setei dentro do token. Mas quando eu fizer essa chamada, se o token estiver válido, ele devolve o objeto. Se estiver inválido ou nulo, ele joga uma exception. Eu vou fazer um try catch, vou colocar o código dentro do try. Se ele rodou tudo ok, o token está válido. Se chegou na linha de baixo é porque o token está válido, retorna true, porque não quero recuperar nenhuma informação do token nesse método. Se deu alguma exception, ele vai entrar no false
+        return verificar(token).map(this::getIdUsuario)
+                .orElseThrow(() -> new IllegalArgumentException("Token inválido"));
+    }
+
+    public Long getIdUsuario(Claims claims) {
         return Long.parseLong(claims.getSubject());
+    }
+
+    //Monta o usuário só com as claims, quando o token foi emitido com claims completas. Tokens antigos (só com o id
+    //no subject) devolvem vazio e o filtro continua buscando o usuário pelo id.
+    public Optional<UsuarioAutenticado> getUsuarioAutenticado(Claims claims) {
+        Object perfis = claims.get(CLAIM_PERFIS);
+        if (!(perfis instanceof List)) {
+            return Optional.empty();
+        }
+        List<GrantedAuthority> authorities = ((List<?>) perfis).stream()
+                .map(perfil -> new SimpleGrantedAuthority(String.valueOf(perfil)))
+                .collect(Collectors.toList());
+        return Optional.of(new UsuarioAutenticado(getIdUsuario(claims), claims.get(CLAIM_NOME, String.class), null, authorities));
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // todo JRE tem SHA-256
+        }
+    }
+
+    private static class ExpiracaoDoToken implements Expiry<String, Claims> {
 
+        private final long maximo;
+
+        ExpiracaoDoToken(long maximo) {
+            this.maximo = maximo;
+        }
+
+        @Override
+        public long expireAfterCreate(String hash, Claims claims, long currentTime) {
+            if (claims.getExpiration() == null) {
+                return maximo;
+            }
+            long restante = TimeUnit.MILLISECONDS.toNanos(claims.getExpiration().getTime() - System.currentTimeMillis());
+            return Math.max(0, Math.min(maximo, restante));
+        }
+
+        @Override
+        public long expireAfterUpdate(String hash, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String hash, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
 
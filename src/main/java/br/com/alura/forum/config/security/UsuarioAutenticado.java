@@ -0,0 +1,44 @@
+package br.com.alura.forum.config.security;
+
+import br.com.alura.forum.modelo.Usuario;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Cópia imutável do usuário logado e dos seus perfis, usada como principal das requisições autenticadas
+ * por token. Diferente da entidade Usuario, pode ser compartilhada entre requisições (e guardada em cache)
+ * sem risco de alguém alterar ou de disparar lazy loading fora da sessão do Hibernate.
+ */
+@Getter
+public class UsuarioAutenticado {
+
+    private final Long id;
+    private final String nome;
+    private final String email;
+    private final List<GrantedAuthority> authorities;
+
+    public UsuarioAutenticado(Long id, String nome, String email, Collection<? extends GrantedAuthority> authorities) {
+        this.id = id;
+        this.nome = nome;
+        this.email = email;
+        this.authorities = authorities.stream()
+                .map(perfil -> new SimpleGrantedAuthority(perfil.getAuthority()))
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    public UsuarioAutenticado(Usuario usuario) {
+        this(usuario.getId(), usuario.getNome(), usuario.getEmail(), usuario.getAuthorities());
+    }
+
+    //É o que o Spring Security devolve em Authentication.getName(). O id existe em qualquer principal; o email não vem
+    //nos tokens com claims completas.
+    @Override
+    public String toString() {
+        return String.valueOf(id);
+    }
+}
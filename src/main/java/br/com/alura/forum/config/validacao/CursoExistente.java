@@ -0,0 +1,27 @@
+package br.com.alura.forum.config.validacao;
+
+import javax.validation.Constraint;
+import javax.validation.Payload;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * O nome do curso precisa existir (DicionarioDeCursos). Sem essa validação, um nome desconhecido virava um tópico
+ * sem curso; com ela, volta 400 com o erro no campo, como as outras validações do formulário.
+ * Nulo é considerado válido: quem exige o campo é o @NotNull.
+ */
+@Documented
+@Constraint(validatedBy = CursoExistenteValidator.class)
+@Target({ElementType.FIELD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CursoExistente {
+
+    String message() default "curso não encontrado";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,19 @@
+package br.com.alura.forum.config.validacao;
+
+import br.com.alura.forum.service.DicionarioDeCursos;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+//O Validator do Spring cria os ConstraintValidator pelo contexto, então o @Autowired funciona aqui
+public class CursoExistenteValidator implements ConstraintValidator<CursoExistente, String> {
+
+    @Autowired
+    private DicionarioDeCursos cursos;
+
+    @Override
+    public boolean isValid(String nomeCurso, ConstraintValidatorContext context) {
+        return nomeCurso == null || nomeCurso.isEmpty() || cursos.buscar(nomeCurso).isPresent();
+    }
+}
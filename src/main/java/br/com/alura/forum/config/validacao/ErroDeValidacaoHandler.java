@@ -1,9 +1,11 @@
 package br.com.alura.forum.config.validacao;
 
+import br.com.alura.forum.controller.paginacao.CursorInvalidoException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
 import org.springframework.context.i18n.LocaleContext;
 import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -37,6 +39,23 @@ public class ErroDeValidacaoHandler {
         });
         return dto;
     }
+
+    @ResponseStatus(code = HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(CursorInvalidoException.class)
+    public List<ErroDeFormularioDto> handler(CursorInvalidoException exception) {
+        List<ErroDeFormularioDto> dto = new ArrayList<>();
+        dto.add(new ErroDeFormularioDto("after", exception.getMessage()));
+        return dto;
+    }
+
+    //Duas edições simultâneas do mesmo tópico: a segunda encontra a versão já alterada e não sobrescreve a primeira
+    @ResponseStatus(code = HttpStatus.CONFLICT)
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public List<ErroDeFormularioDto> handler(OptimisticLockingFailureException exception) {
+        List<ErroDeFormularioDto> dto = new ArrayList<>();
+        dto.add(new ErroDeFormularioDto("versao", "O registro foi alterado por outra requisição, carregue-o novamente"));
+        return dto;
+    }
 }
 /**
  * @RestControllerAdvice - Para interceptar as exceptions que forem lançadas nos métodos das classes controller,
@@ -3,8 +3,11 @@ package br.com.alura.forum.controller;
 
 import br.com.alura.forum.controller.dto.TokenDto;
 import br.com.alura.forum.form.LoginForm;
+import br.com.alura.forum.config.security.ExecutorDeLogin;
 import br.com.alura.forum.config.security.TokenService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -16,6 +19,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.validation.Valid;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/auth")
@@ -27,13 +34,30 @@ public class AutenticacaoController {
     @Autowired
     private TokenService tokenService;
 
+    @Autowired
+    private ExecutorDeLogin executorDeLogin; // pool exclusivo do login (bulkhead)
+
+    @Value("${forum.auth.login.timeout}")
+    private long timeout;
+
 
     //recebe a requisição do cliente com o e-mail e a senha, valida no banco de dados se os dados estão corretos, e se estiver gera o token devolvendo dentro do dto.
+    //A validação (BCrypt) roda no executorDeLogin e a thread do Tomcat é liberada enquanto isso (o retorno é um CompletableFuture).
+    //Com a fila do pool cheia ou a espera passando do timeout, o cliente recebe 503 na hora.
     @PostMapping
-    public ResponseEntity<TokenDto> autenticar(@RequestBody @Valid LoginForm form) {
+    public CompletableFuture<ResponseEntity<TokenDto>> autenticar(@RequestBody @Valid LoginForm form) {
 
         UsernamePasswordAuthenticationToken dadosLogin = form.converter();
 
+        try {
+            return executorDeLogin.executar(() -> autenticar(dadosLogin), timeout)
+                    .exceptionally(this::indisponivelSeExpirou);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+        }
+    }
+
+    private ResponseEntity<TokenDto> autenticar(UsernamePasswordAuthenticationToken dadosLogin) {
         try{
             Authentication authentication = authManager.authenticate(dadosLogin); // Spring vai chamar o authentication service
             String token = tokenService.gerarToken(authentication);
@@ -42,6 +66,14 @@ public class AutenticacaoController {
                 return ResponseEntity.badRequest().build();
         }
     }
+
+    private ResponseEntity<TokenDto> indisponivelSeExpirou(Throwable erro) {
+        Throwable causa = erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+        if (causa instanceof TimeoutException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        throw erro instanceof CompletionException ? (CompletionException) erro : new CompletionException(erro);
+    }
 }
 /**
  * Em uma API Rest, não é uma boa prática utilizar autenticação com o uso de session;
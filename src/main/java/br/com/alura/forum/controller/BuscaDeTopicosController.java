@@ -0,0 +1,58 @@
+package br.com.alura.forum.controller;
+
+import br.com.alura.forum.busca.IndiceDeTopicos;
+import br.com.alura.forum.controller.dto.TopicoDto;
+import br.com.alura.forum.controller.dto.TopicoEncontradoDto;
+import br.com.alura.forum.repository.TopicoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Busca textual nos títulos e mensagens dos tópicos (GET /topicos/busca?q=). Maiúsculas e acentos não importam,
+ * e os resultados vêm do mais para o menos relevante.
+ */
+@RestController
+@RequestMapping("/topicos/busca")
+public class BuscaDeTopicosController {
+
+    static final int TAMANHO_MAXIMO = 50;
+
+    @Autowired
+    private IndiceDeTopicos indice;
+
+    @Autowired
+    private TopicoRepository topicoRepository;
+
+    //O índice só devolve os ids, na ordem de relevância; os dados vêm do banco numa única consulta pelos ids.
+    @GetMapping
+    @Transactional(readOnly = true)
+    public List<TopicoEncontradoDto> buscar(@RequestParam String q, @RequestParam(defaultValue = "10") int tamanho) {
+        List<IndiceDeTopicos.TopicoEncontrado> encontrados = indice.buscar(q, Math.max(1, Math.min(tamanho, TAMANHO_MAXIMO)));
+        if (encontrados.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = encontrados.stream().map(IndiceDeTopicos.TopicoEncontrado::getId).collect(Collectors.toList());
+        Map<Long, TopicoDto> topicos = topicoRepository.buscarPorIds(ids).stream()
+                .collect(Collectors.toMap(TopicoDto::getId, Function.identity()));
+
+        List<TopicoEncontradoDto> resultado = new ArrayList<>(encontrados.size());
+        for (IndiceDeTopicos.TopicoEncontrado encontrado : encontrados) {
+            TopicoDto topico = topicos.get(encontrado.getId());
+            if (topico != null) { // removido entre a busca e a consulta
+                resultado.add(new TopicoEncontradoDto(topico, encontrado.getRelevancia()));
+            }
+        }
+        return resultado;
+    }
+}
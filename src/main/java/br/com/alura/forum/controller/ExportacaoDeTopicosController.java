@@ -0,0 +1,103 @@
+package br.com.alura.forum.controller;
+
+import br.com.alura.forum.controller.dto.TopicoExportadoDto;
+import br.com.alura.forum.modelo.Curso;
+import br.com.alura.forum.modelo.StatusTopico;
+import br.com.alura.forum.repository.TopicoRepository;
+import br.com.alura.forum.service.DicionarioDeCursos;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Exporta todos os tópicos (com filtros opcionais de curso, status e data) em NDJSON: um JSON por linha.
+ *
+ * Os registros são lidos do banco por um cursor e escritos na resposta conforme chegam, então a memória usada é
+ * a mesma para mil ou para milhões de tópicos. A saída é ordenada por id; se o download for interrompido, o
+ * cliente retoma com aposId igual ao id da última linha que recebeu.
+ */
+@RestController
+@RequestMapping("/topicos/exportacao")
+public class ExportacaoDeTopicosController {
+
+    private static final byte[] QUEBRA_DE_LINHA = {'\n'};
+    private static final int LINHAS_POR_FLUSH = 1000;
+
+    @Autowired
+    private TopicoRepository topicoRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DicionarioDeCursos cursos;
+
+    @Value("${forum.exportacao.timeout}")
+    private long timeout;
+
+    private final TransactionTemplate transacaoDeLeitura;
+
+    public ExportacaoDeTopicosController(PlatformTransactionManager transactionManager) {
+        this.transacaoDeLeitura = new TransactionTemplate(transactionManager);
+        this.transacaoDeLeitura.setReadOnly(true);
+    }
+
+    //A escrita roda depois que o método retorna, em outra thread (WebAsyncTask, como um StreamingResponseBody). Por
+    //isso a transação é aberta dentro dela (TransactionTemplate), e fica aberta só enquanto o cursor é percorrido.
+    //O WebAsyncTask leva o tempo limite só desta requisição (forum.exportacao.timeout); as demais requisições
+    //assíncronas seguem o padrão.
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public WebAsyncTask<Void> exportar(@RequestParam(required = false) String nomeCurso,
+                                       @RequestParam(required = false) StatusTopico status,
+                                       @RequestParam(required = false)
+                                       @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+                                       @RequestParam(defaultValue = "0") Long aposId,
+                                       HttpServletResponse resposta) {
+        resposta.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        Optional<Curso> curso = cursos.buscar(nomeCurso);
+        if (nomeCurso != null && curso.isEmpty()) { // curso inexistente: nenhum tópico
+            return new WebAsyncTask<>(timeout, () -> null);
+        }
+        Long idCurso = curso.map(Curso::getId).orElse(null);
+        return new WebAsyncTask<>(timeout, () -> {
+            OutputStream saida = resposta.getOutputStream();
+            transacaoDeLeitura.executeWithoutResult(transacao -> {
+                try (Stream<TopicoExportadoDto> topicos = topicoRepository.exportar(aposId, idCurso, status, desde)) {
+                    int[] linhas = {0};
+                    topicos.forEach(topico -> escrever(saida, topico, ++linhas[0] % LINHAS_POR_FLUSH == 0));
+                }
+            });
+            saida.flush();
+            return null;
+        });
+    }
+
+    private void escrever(OutputStream saida, TopicoExportadoDto topico, boolean flush) {
+        try {
+            saida.write(objectMapper.writeValueAsBytes(topico));
+            saida.write(QUEBRA_DE_LINHA);
+            if (flush) { // entrega ao cliente o que já foi lido, para ele acompanhar o progresso (e poder retomar)
+                saida.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cliente desconectou: encerra a leitura e a transação
+        }
+    }
+}
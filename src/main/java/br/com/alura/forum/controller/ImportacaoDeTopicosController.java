@@ -0,0 +1,42 @@
+package br.com.alura.forum.controller;
+
+import br.com.alura.forum.config.security.UsuarioAutenticado;
+import br.com.alura.forum.controller.dto.ResultadoDaImportacaoDto;
+import br.com.alura.forum.controller.form.TopicoImportadoForm;
+import br.com.alura.forum.service.ImportacaoDeTopicosService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Importação em lote para as migrações, no lugar de um POST /topicos por tópico. Aceita um array JSON
+ * (application/json) ou um JSON por linha (application/x-ndjson), e o usuário logado fica como autor.
+ */
+@RestController
+@RequestMapping("/topicos/importacao")
+public class ImportacaoDeTopicosController {
+
+    @Autowired
+    private ImportacaoDeTopicosService importacao;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    //O corpo é lido como InputStream, registro por registro, em vez de virar uma lista inteira na memória.
+    @PostMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ResultadoDaImportacaoDto> importar(InputStream corpo,
+                                                             @AuthenticationPrincipal UsuarioAutenticado usuario) throws IOException {
+        try (MappingIterator<TopicoImportadoForm> registros = objectMapper.readerFor(TopicoImportadoForm.class).readValues(corpo)) {
+            return ResponseEntity.ok(importacao.importar(registros, usuario == null ? null : usuario.getId()));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package br.com.alura.forum.controller;
+
+import br.com.alura.forum.config.security.UsuarioAutenticado;
+import br.com.alura.forum.controller.dto.PaginaPorCursorDto;
+import br.com.alura.forum.controller.dto.RespostaDto;
+import br.com.alura.forum.controller.form.RespostaForm;
+import br.com.alura.forum.evento.RespostaAlteradaEvento;
+import br.com.alura.forum.modelo.Resposta;
+import br.com.alura.forum.repository.RespostaRepository;
+import br.com.alura.forum.repository.TopicoRepository;
+import br.com.alura.forum.repository.UsuarioRepository;
+import br.com.alura.forum.service.PaginacaoDeRespostasService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+
+/**
+ * Respostas de um tópico, paginadas por cursor da mais antiga para a mais nova. A primeira página já vem no
+ * GET /topicos/{id}; as seguintes são pedidas aqui com o proximoCursorDeRespostas no parâmetro "after".
+ */
+@RestController
+@RequestMapping("/topicos/{idTopico}/respostas")
+public class RespostasController {
+
+    @Autowired
+    private RespostaRepository respostaRepository;
+    @Autowired
+    private TopicoRepository topicoRepository;
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+    @Autowired
+    private ApplicationEventPublisher eventos;
+    @Autowired
+    private PaginacaoDeRespostasService paginacaoDeRespostas;
+
+    @GetMapping
+    @Transactional(readOnly = true) // somente leitura: pode ir para uma réplica (RoteamentoDeLeituras)
+    public ResponseEntity<PaginaPorCursorDto<RespostaDto>> lista(@PathVariable Long idTopico,
+                                                                 @RequestParam(defaultValue = "") String after,
+                                                                 @RequestParam(defaultValue = "10") int tamanho) {
+        PaginaPorCursorDto<RespostaDto> pagina = paginacaoDeRespostas.pagina(idTopico, after, tamanho);
+        //uma página vazia pode ser de um tópico sem respostas ou de um tópico que não existe
+        if (pagina.getConteudo().isEmpty() && !topicoRepository.existsById(idTopico)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(pagina);
+    }
+
+    //A quantidade de respostas e a última atividade do tópico são atualizadas no mesmo commit da resposta.
+    //O update do tópico vem primeiro: ele diz se o tópico existe e trava a linha até o commit.
+    @PostMapping
+    @Transactional
+    public ResponseEntity<RespostaDto> responder(@PathVariable Long idTopico, @RequestBody @Valid RespostaForm form,
+                                                 @AuthenticationPrincipal UsuarioAutenticado usuario) {
+        Resposta resposta = new Resposta();
+        if (topicoRepository.registrarResposta(idTopico, resposta.getDataCriacao()) == 0) {
+            return ResponseEntity.notFound().build();
+        }
+        resposta.setMensagem(form.getMensagem());
+        resposta.setTopico(topicoRepository.getById(idTopico)); // getById: só a referência, sem select
+        resposta.setAutor(usuario == null ? null : usuarioRepository.getById(usuario.getId()));
+        respostaRepository.save(resposta);
+
+        eventos.publishEvent(new RespostaAlteradaEvento(RespostaAlteradaEvento.Tipo.CRIADA, idTopico,
+                topicoRepository.nomeDoCurso(idTopico).orElse(null), resposta.getDataCriacao()));
+        return ResponseEntity.status(HttpStatus.CREATED).body(new RespostaDto(resposta.getId(), resposta.getMensagem(),
+                resposta.getDataCriacao(), usuario == null ? null : usuario.getNome()));
+    }
+
+    @DeleteMapping("/{id}")
+    @Transactional
+    public ResponseEntity<?> remover(@PathVariable Long idTopico, @PathVariable Long id) {
+        if (respostaRepository.removerDoTopico(id, idTopico) == 0) {
+            return ResponseEntity.notFound().build();
+        }
+        topicoRepository.registrarRemocaoDeResposta(idTopico);
+        eventos.publishEvent(new RespostaAlteradaEvento(RespostaAlteradaEvento.Tipo.REMOVIDA, idTopico,
+                topicoRepository.nomeDoCurso(idTopico).orElse(null),
+                topicoRepository.buscarUltimaAtividade(idTopico).orElse(null)));
+        return ResponseEntity.ok().build();
+    }
+}
@@ -1,24 +1,40 @@
 package br.com.alura.forum.controller;
 
 import br.com.alura.forum.controller.dto.DetalhesDoTopicoDto;
+import br.com.alura.forum.controller.dto.PaginaPorCursorDto;
+import br.com.alura.forum.controller.dto.RespostaDto;
 import br.com.alura.forum.controller.dto.TopicoDto;
 import br.com.alura.forum.controller.form.AtualizacaoTopicoForm;
 import br.com.alura.forum.controller.form.TopicoForm;
+import br.com.alura.forum.config.cache.CacheDeRespostasSerializadas;
+import br.com.alura.forum.config.cache.ChaveListaDeTopicosGenerator;
+import br.com.alura.forum.config.cache.EtagDaListagem;
+import br.com.alura.forum.config.cache.PaginacaoDaListagem;
+import br.com.alura.forum.config.cache.RespostaSerializada;
+import br.com.alura.forum.config.datasource.RoteamentoDeLeituras;
+import br.com.alura.forum.controller.paginacao.Cursor;
+import br.com.alura.forum.evento.TopicoAlteradoEvento;
+import br.com.alura.forum.evento.TopicoVisualizadoEvento;
 import br.com.alura.forum.modelo.Curso;
 import br.com.alura.forum.modelo.Topico;
-import br.com.alura.forum.repository.CursoRepository;
 import br.com.alura.forum.repository.TopicoRepository;
+import br.com.alura.forum.service.ContadorDeTopicosService;
+import br.com.alura.forum.service.ContadorDeVisualizacoes;
+import br.com.alura.forum.service.DicionarioDeCursos;
+import br.com.alura.forum.service.ListagemDeTopicosService;
+import br.com.alura.forum.service.PaginacaoDeRespostasService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.util.UriComponentsBuilder;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,8 +42,10 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.validation.Valid;
 import java.net.URI;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 
 
@@ -35,54 +53,164 @@ import java.util.Optional;
 @RequestMapping("/topicos")//a mesma url vale para o metodo get e para o post
 public class TopicosController {
 
+    static final int RESPOSTAS_NO_DETALHE = 10;
+
 
     @Autowired
     private TopicoRepository topicoRepository;
     @Autowired
-    private CursoRepository cursoRepository;
+    private DicionarioDeCursos cursos;
+    @Autowired
+    private PaginacaoDeRespostasService paginacaoDeRespostas;
+    @Autowired
+    private ContadorDeTopicosService contadorDeTopicos;
+    @Autowired
+    private ContadorDeVisualizacoes contadorDeVisualizacoes;
+    @Autowired
+    private ListagemDeTopicosService listagemDeTopicos;
+    @Autowired
+    private EtagDaListagem etagDaListagem;
+    @Autowired
+    private ChaveListaDeTopicosGenerator chaveListaDeTopicos;
+    @Autowired
+    private CacheDeRespostasSerializadas respostasSerializadas;
+    @Autowired
+    private ApplicationEventPublisher eventos;
+    @Value("${forum.datasource.replicas.janela}")
+    private long janelaDaReplicacao;
 
 
+    //ETag da listagem: muda quando a geracao do escopo avanca (qualquer escrita no curso ou na listagem geral).
+    //Se o cliente manda o mesmo ETag no If-None-Match, a resposta e 304, sem cache, sem banco e sem serializar a pagina.
+    //Com forum.cache.respostas.habilitado, as paginas em cache ja saem como bytes de JSON (ou gzip), sem o Jackson.
     @GetMapping
-    @Cacheable(value = "listaDeTopicos")
-    public Page<TopicoDto>lista(@RequestParam(required = false) String nomeCurso,
-                           @PageableDefault(sort="id",direction = Sort.Direction.DESC,size=10) Pageable paginacao){
+    public ResponseEntity<?>lista(@RequestParam(required = false) String nomeCurso,
+                           @PageableDefault(sort="id",direction = Sort.Direction.DESC,size=10) Pageable paginacao,
+                           WebRequest request){
+        String etag = etagDaListagem.etag(nomeCurso, paginacao);
+        if (CacheDeRespostasSerializadas.naoModificado(request, etag)) {
+            return null; // o Spring ja preparou o 304
+        }
+        if (respostasSerializadas.habilitado() && PaginacaoDaListagem.cacheavel(paginacao)) {
+            RespostaSerializada pagina = respostasSerializadas.buscar(chaveListaDeTopicos.chave(nomeCurso, paginacao),
+                    () -> respostasSerializadas.serializar(listagemDeTopicos.listar(nomeCurso, paginacao), etag, null));
+            return CacheDeRespostasSerializadas.responder(pagina, request);
+        }
+        return ResponseEntity.ok().eTag(etag).body(listagemDeTopicos.listar(nomeCurso, paginacao));
+    }
+
+    //Paginacao por cursor (?after=): a primeira pagina e pedida com "after" vazio e as seguintes com o proximoCursor
+    //devolvido. Busca tamanho + 1 registros para saber se existe proxima pagina, sem OFFSET e sem COUNT(*).
+    @GetMapping(params = "after")
+    @Transactional(readOnly = true) // somente leitura: pode ir para uma replica (RoteamentoDeLeituras)
+    public PaginaPorCursorDto<TopicoDto> listaPorCursor(@RequestParam(required = false) String nomeCurso,
+                                                       @RequestParam(defaultValue = "") String after,
+                                                       @RequestParam(defaultValue = "10") int tamanho) {
+        tamanho = Math.max(1, Math.min(tamanho, PaginacaoDaListagem.TAMANHO_MAXIMO));
+        Pageable limite = PageRequest.of(0, tamanho + 1);
 
+        //o filtro por curso usa o curso_id do dicionario, sem o join com Curso
+        Long idCurso = null;
+        if (nomeCurso != null) {
+            Optional<Curso> curso = cursos.buscar(nomeCurso);
+            if (curso.isEmpty()) {
+                return PaginaPorCursorDto.converter(Collections.emptyList(), tamanho, Function.identity(),
+                        topico -> new Cursor(topico.getDataCriacao(), topico.getId()));
+            }
+            idCurso = curso.get().getId();
+        }
 
-        if(nomeCurso==null){
-            Page<Topico> topicos =topicoRepository.findAll(paginacao);
-            return TopicoDto.converter(topicos);
-        }else{
-            Page<Topico> topicos = topicoRepository.findByCurso_Nome(nomeCurso,paginacao);
-            return TopicoDto.converter(topicos);
+        List<TopicoDto> topicos;
+        if (after.isEmpty()) {
+            topicos = idCurso == null
+                    ? topicoRepository.buscarPrimeiros(limite)
+                    : topicoRepository.buscarPrimeirosDoCurso(idCurso, limite);
+        } else {
+            Cursor cursor = Cursor.decodificar(after);
+            topicos = idCurso == null
+                    ? topicoRepository.buscarApos(cursor.getDataCriacao(), cursor.getId(), limite)
+                    : topicoRepository.buscarAposDoCurso(idCurso, cursor.getDataCriacao(), cursor.getId(), limite);
         }
+        return PaginaPorCursorDto.converter(topicos, tamanho, Function.identity(),
+                topico -> new Cursor(topico.getDataCriacao(), topico.getId()));
     }
     //Funcionamento web - informacoes cadastradas pelo usuario sao armazenadas em Json e o spring chama o "JACKSON"
     //para converter em TopicForm
     @PostMapping
     @Transactional
-    @CacheEvict(value="listaDeTopicos", allEntries = true)
      public ResponseEntity<TopicoDto> cadastrar(@RequestBody @Valid TopicoForm form, UriComponentsBuilder uriBuilder){
-        Topico topico= form.converter(cursoRepository);
+        Topico topico= form.converter(cursos);
         topicoRepository.save(topico);// salva novo topico
+        contadorDeTopicos.registrarCriacao(topico.getCurso());
+        eventos.publishEvent(new TopicoAlteradoEvento(TopicoAlteradoEvento.Tipo.CRIADO, topico));
         URI uri = uriBuilder.path("/topicos/{id}").buildAndExpand(topico.getId()).toUri(); //  não vou passar o caminho completo, o caminho do servidor. Só vou passar o caminho do recurso.
         return ResponseEntity.created(uri).body(new TopicoDto(topico));
     }
+    //Só as primeiras RESPOSTAS_NO_DETALHE respostas vêm junto com o tópico, o resto em GET /topicos/{id}/respostas
+    //ETag do detalhe: a versao do topico, que muda em toda alteracao dele e a cada resposta nova ou removida.
+    //Com If-None-Match, primeiro so a versao e consultada; se for a mesma, 304 sem carregar o topico.
+    //Com forum.cache.respostas.habilitado, um acerto no cache responde (200 ou 304) sem nenhuma consulta ao banco.
     @GetMapping("/{id}")
-    public ResponseEntity<DetalhesDoTopicoDto> detalhar(@PathVariable Long id){
-        Optional<Topico> topico = topicoRepository.findById(id);
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> detalhar(@PathVariable Long id, WebRequest request){
+        CacheDeRespostasSerializadas.ChaveDoDetalhe chave = null;
+        if (respostasSerializadas.habilitado()) {
+            chave = respostasSerializadas.chaveDoTopico(id); // antes da consulta, ver CacheDeRespostasSerializadas
+            RespostaSerializada salva = respostasSerializadas.buscar(chave);
+            if (salva != null) {
+                if (CacheDeRespostasSerializadas.naoModificado(request, salva.getEtag())) {
+                    return null;
+                }
+                eventos.publishEvent(new TopicoVisualizadoEvento(id, salva.getNomeCurso()));
+                return CacheDeRespostasSerializadas.responder(salva, request);
+            }
+        }
+        if (chave != null && respostasSerializadas.alteradoHaMenosDe(id, janelaDaReplicacao)) {
+            //o detalhe vai para o cache logo depois de uma escrita no topico: lido do primario, e nao de uma
+            //replica que ainda pode nao ter a escrita (ver ListagemDeTopicosService)
+            CacheDeRespostasSerializadas.ChaveDoDetalhe chaveDoPrimario = chave;
+            return RoteamentoDeLeituras.noPrimario(() -> consultarDetalhe(id, chaveDoPrimario, request));
+        }
+        return consultarDetalhe(id, chave, request);
+    }
+
+    private ResponseEntity<?> consultarDetalhe(Long id, CacheDeRespostasSerializadas.ChaveDoDetalhe chave, WebRequest request) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Long> versao = topicoRepository.buscarVersao(id);
+            if (versao.isPresent() && CacheDeRespostasSerializadas.naoModificado(request, etagDoTopico(id, versao.get()))) {
+                return null;
+            }
+        }
+        Optional<Topico> topico = topicoRepository.buscarComAutor(id);
         if(topico.isPresent()) {
-            return ResponseEntity.ok(new DetalhesDoTopicoDto(topico.get()));
+            Curso curso = topico.get().getCurso();
+            String nomeCurso = curso == null ? null : curso.getNome();
+            eventos.publishEvent(new TopicoVisualizadoEvento(id, nomeCurso));
+            PaginaPorCursorDto<RespostaDto> respostas = paginacaoDeRespostas.pagina(id, "", RESPOSTAS_NO_DETALHE);
+            DetalhesDoTopicoDto detalhes = new DetalhesDoTopicoDto(topico.get(), respostas, topico.get().getQuantidadeDeRespostas(),
+                    contadorDeVisualizacoes.pendentes(id));
+            String etag = etagDoTopico(id, topico.get().getVersao());
+            if (chave != null) {
+                return CacheDeRespostasSerializadas.responder(respostasSerializadas.guardar(chave, detalhes, etag, nomeCurso), request);
+            }
+            return ResponseEntity.ok().eTag(etag).body(detalhes);
         }
         return ResponseEntity.notFound().build();
     }
 
+    //ETag fraco (W/): o corpo traz as visualizacoes, que mudam sem mudar a versao. Dois corpos com a mesma versao sao
+    //equivalentes, mas nao iguais byte a byte, e a contagem pode estar tao atrasada quanto a copia em cache.
+    private static String etagDoTopico(Long id, Long versao) {
+        return "W/\"t-" + id + "-" + versao + "\"";
+    }
+
     @PutMapping("/{id}")
     @Transactional
-    @CacheEvict(value="listaDeTopicos", allEntries = true)
     public  ResponseEntity<TopicoDto>atualizar(@PathVariable Long id, @RequestBody @Valid AtualizacaoTopicoForm form ){
         Optional<Topico> optional = topicoRepository.findById(id);
         if(optional.isPresent()) {
             Topico topico = form.atualizar(id,topicoRepository);
+            eventos.publishEvent(new TopicoAlteradoEvento(TopicoAlteradoEvento.Tipo.ATUALIZADO, topico));
             return ResponseEntity.ok(new TopicoDto(topico));
         }
         return ResponseEntity.notFound().build();
@@ -90,11 +218,13 @@ public class TopicosController {
 
     @DeleteMapping("/{id}")
     @Transactional
-    @CacheEvict(value="listaDeTopicos", allEntries = true)
     public ResponseEntity<?> remover(@PathVariable Long id){
         Optional<Topico> optional = topicoRepository.findById(id);
         if(optional.isPresent()) {
+            TopicoAlteradoEvento evento = new TopicoAlteradoEvento(TopicoAlteradoEvento.Tipo.REMOVIDO, optional.get());
             topicoRepository.deleteById(id);
+            contadorDeTopicos.registrarRemocao(optional.get().getCurso());
+            eventos.publishEvent(evento);
             return ResponseEntity.ok().build();
         }
         return ResponseEntity.notFound().build();
@@ -160,7 +290,7 @@ public class TopicosController {
  * URI uri - uriBuilder.path("/topicos/{id}").buildAndExpand(topico.getId()).toUri();
  * não vou passar o caminho completo, o caminho do servidor. Só vou passar o caminho do recurso.
  *
- * form.converter(cursoRepository);//converter cursoRepository
+ * form.converter(cursos);//converter: o curso vem do DicionarioDeCursos, sem consulta
  *
  * @Valid - que é do próprio Bean Validation - para avisar para o Spring: quando você for injetar
  * o TopicoForm, puxando os dados que estão vindo na requisição, rode as validações, @Valid,
@@ -236,6 +366,11 @@ public class TopicosController {
  *    anotados com @Cacheable, e o Spring precisa saber como ele vai diferenciar um do outro. Ele faz isso
  *    utilizando o id único. Vou passar um nome, por exemplo, listaDeTopicos. Essa string vai funcionar como
  *    sendo um id desse cache.
+ *    O @Cacheable hoje fica no ListagemDeTopicosService.listar: o lista do controller responde 304 pelo ETag
+ *    antes mesmo de consultar o cache;
  *    Para o Spring invalidar algum cache após um determinado método ser chamado, devemos anotá-lo com @CacheEvict;
+ *    Aqui as escritas publicam um TopicoAlteradoEvento no lugar do @CacheEvict(allEntries = true): a chave do cache
+ *    leva a geração do curso (chaveListaDeTopicos) e, depois do commit, só a listagem geral e a do curso alterado
+ *    mudam de geração, as dos outros cursos continuam valendo;
  * Devemos utilizar cache apenas para as informações que nunca ou raramente são atualizadas no banco de dados.
  */
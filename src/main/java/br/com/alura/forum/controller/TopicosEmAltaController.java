@@ -0,0 +1,28 @@
+package br.com.alura.forum.controller;
+
+import br.com.alura.forum.controller.dto.TopicoEmAltaDto;
+import br.com.alura.forum.tendencias.TopicosEmAlta;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Tópicos em alta (GET /topicos/trending), no geral ou de um curso (nomeCurso), direto da memória.
+ */
+@RestController
+@RequestMapping("/topicos/trending")
+public class TopicosEmAltaController {
+
+    @Autowired
+    private TopicosEmAlta emAlta;
+
+    @GetMapping
+    public List<TopicoEmAltaDto> lista(@RequestParam(required = false) String nomeCurso,
+                                       @RequestParam(defaultValue = "10") int tamanho) {
+        return emAlta.buscar(nomeCurso, Math.max(1, Math.min(tamanho, emAlta.tamanho())));
+    }
+}
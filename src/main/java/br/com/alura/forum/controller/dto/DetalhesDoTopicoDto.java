@@ -5,10 +5,12 @@ import br.com.alura.forum.modelo.Topico;
 import lombok.Data;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
+/**
+ * Traz só as primeiras respostas do tópico. As demais são buscadas em GET /topicos/{id}/respostas, começando
+ * pelo proximoCursorDeRespostas (nulo quando todas já vieram aqui).
+ */
 @Data
 public class DetalhesDoTopicoDto {
 
@@ -19,15 +21,22 @@ public class DetalhesDoTopicoDto {
     private String nomeAutor;
     private StatusTopico status;
     private List<RespostaDto> respostas;
+    private String proximoCursorDeRespostas;
+    private Integer totalDeRespostas;
+    private Long visualizacoes;
 
-    public DetalhesDoTopicoDto(Topico topico){
+    //visualizacoesPendentes: as que ainda estão só em memória (ContadorDeVisualizacoes)
+    public DetalhesDoTopicoDto(Topico topico, PaginaPorCursorDto<RespostaDto> respostas, Integer totalDeRespostas,
+                               long visualizacoesPendentes){
         this.id=topico.getId();
         this.titulo=topico.getTitulo();
         this.mensagem=topico.getMensagem();
         this.dataCriacao=topico.getDataCriacao();
         this.nomeAutor = topico.getAutor().getNome();
         this.status= topico.getStatus();
-        this.respostas= new ArrayList<>();
-        this.respostas.addAll(topico.getRespostas().stream().map(RespostaDto::new).collect(Collectors.toList()));
+        this.respostas= respostas.getConteudo();
+        this.proximoCursorDeRespostas = respostas.getProximoCursor();
+        this.totalDeRespostas = totalDeRespostas;
+        this.visualizacoes = topico.getVisualizacoes() + visualizacoesPendentes;
     }
 }
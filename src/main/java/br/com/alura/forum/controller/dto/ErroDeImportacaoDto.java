@@ -0,0 +1,18 @@
+package br.com.alura.forum.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Erro de um registro da importação. A linha é a posição do registro no arquivo (1 = primeiro), que no NDJSON
+ * é a própria linha e no array JSON é o índice do elemento.
+ */
+@Data
+@AllArgsConstructor
+public class ErroDeImportacaoDto {
+
+    private final int linha;
+    private final String campo;
+    private final String erro;
+
+}
@@ -0,0 +1,33 @@
+package br.com.alura.forum.controller.dto;
+
+import br.com.alura.forum.controller.paginacao.Cursor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Resposta da paginação por cursor. Diferente do Page, não traz totalElements nem totalPages, porque isso
+ * exigiria o SELECT COUNT(*) que queremos evitar. Quando proximoCursor vier nulo, não há mais registros.
+ */
+@Data
+public class PaginaPorCursorDto<T> {
+
+    private List<T> conteudo;
+    private String proximoCursor;
+
+    public PaginaPorCursorDto(List<T> conteudo, String proximoCursor) {
+        this.conteudo = conteudo;
+        this.proximoCursor = proximoCursor;
+    }
+
+    // a consulta deve buscar tamanho + 1 registros: se o registro extra vier, sabemos que existe uma próxima página
+    public static <E, T> PaginaPorCursorDto<T> converter(List<E> registros, int tamanho,
+                                                         Function<E, T> conversor, Function<E, Cursor> cursor) {
+        boolean temProxima = registros.size() > tamanho;
+        List<E> pagina = temProxima ? registros.subList(0, tamanho) : registros;
+        String proximoCursor = temProxima ? cursor.apply(pagina.get(pagina.size() - 1)).codificar() : null;
+        return new PaginaPorCursorDto<>(pagina.stream().map(conversor).collect(Collectors.toList()), proximoCursor);
+    }
+}
@@ -21,4 +21,12 @@ public class RespostaDto {
         this.nomeAutor=resposta.getAutor().getNome();
     }
 
+    // usado nas consultas com "select new" do RespostaRepository
+    public RespostaDto(Long id, String mensagem, LocalDateTime dataCriacao, String nomeAutor){
+        this.id=id;
+        this.mensagem=mensagem;
+        this.dataCriacao=dataCriacao;
+        this.nomeAutor=nomeAutor;
+    }
+
 }
@@ -0,0 +1,23 @@
+package br.com.alura.forum.controller.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ResultadoDaImportacaoDto {
+
+    private long topicosImportados;
+    private long respostasImportadas;
+    private List<ErroDeImportacaoDto> erros = new ArrayList<>();
+
+    public void somar(long topicos, long respostas) {
+        this.topicosImportados += topicos;
+        this.respostasImportadas += respostas;
+    }
+
+    public void adicionarErro(int linha, String campo, String erro) {
+        erros.add(new ErroDeImportacaoDto(linha, campo, erro));
+    }
+}
@@ -22,12 +22,27 @@ public class TopicoDto {
     private String titulo;
     private String mensagem;
     private LocalDateTime dataCriacao;
+    private Integer quantidadeDeRespostas;
+    private LocalDateTime ultimaAtividade;
 
     public TopicoDto(Topico topico){
         this.id=topico.getId();
         this.titulo=topico.getTitulo();
         this.mensagem=topico.getMensagem();
         this.dataCriacao=topico.getDataCriacao();
+        this.quantidadeDeRespostas=topico.getQuantidadeDeRespostas();
+        this.ultimaAtividade=topico.getUltimaAtividade();
+    }
+
+    // usado nas consultas com "select new" do TopicoRepository, que leem só essas colunas
+    public TopicoDto(Long id, String titulo, String mensagem, LocalDateTime dataCriacao,
+                     Integer quantidadeDeRespostas, LocalDateTime ultimaAtividade){
+        this.id=id;
+        this.titulo=titulo;
+        this.mensagem=mensagem;
+        this.dataCriacao=dataCriacao;
+        this.quantidadeDeRespostas=quantidadeDeRespostas;
+        this.ultimaAtividade=ultimaAtividade;
     }
 
 
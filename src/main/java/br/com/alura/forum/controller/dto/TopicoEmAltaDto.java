@@ -0,0 +1,28 @@
+package br.com.alura.forum.controller.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Um tópico do ranking de em alta. A pontuação é a atividade recente, já descontado o decaimento.
+ */
+@Data
+public class TopicoEmAltaDto {
+
+    private Long id;
+    private String titulo;
+    private LocalDateTime dataCriacao;
+    private Integer quantidadeDeRespostas;
+    private LocalDateTime ultimaAtividade;
+    private double pontuacao;
+
+    public TopicoEmAltaDto(TopicoDto topico, double pontuacao) {
+        this.id = topico.getId();
+        this.titulo = topico.getTitulo();
+        this.dataCriacao = topico.getDataCriacao();
+        this.quantidadeDeRespostas = topico.getQuantidadeDeRespostas();
+        this.ultimaAtividade = topico.getUltimaAtividade();
+        this.pontuacao = pontuacao;
+    }
+}
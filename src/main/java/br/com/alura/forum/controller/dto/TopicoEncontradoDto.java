@@ -0,0 +1,29 @@
+package br.com.alura.forum.controller.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Um tópico do resultado da busca. A relevância é a pontuação do índice (BM25): só serve para comparar os
+ * resultados de uma mesma busca.
+ */
+@Data
+public class TopicoEncontradoDto {
+
+    private Long id;
+    private String titulo;
+    private String mensagem;
+    private LocalDateTime dataCriacao;
+    private Integer quantidadeDeRespostas;
+    private double relevancia;
+
+    public TopicoEncontradoDto(TopicoDto topico, double relevancia) {
+        this.id = topico.getId();
+        this.titulo = topico.getTitulo();
+        this.mensagem = topico.getMensagem();
+        this.dataCriacao = topico.getDataCriacao();
+        this.quantidadeDeRespostas = topico.getQuantidadeDeRespostas();
+        this.relevancia = relevancia;
+    }
+}
@@ -0,0 +1,32 @@
+package br.com.alura.forum.controller.dto;
+
+import br.com.alura.forum.modelo.StatusTopico;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Uma linha da exportação NDJSON. É montado direto pela consulta (select new), sem entidades.
+ */
+@Data
+public class TopicoExportadoDto {
+
+    private Long id;
+    private String titulo;
+    private String mensagem;
+    private LocalDateTime dataCriacao;
+    private StatusTopico status;
+    private String nomeCurso;
+    private String nomeAutor;
+
+    public TopicoExportadoDto(Long id, String titulo, String mensagem, LocalDateTime dataCriacao,
+                              StatusTopico status, String nomeCurso, String nomeAutor) {
+        this.id = id;
+        this.titulo = titulo;
+        this.mensagem = mensagem;
+        this.dataCriacao = dataCriacao;
+        this.status = status;
+        this.nomeCurso = nomeCurso;
+        this.nomeAutor = nomeAutor;
+    }
+}
@@ -0,0 +1,14 @@
+package br.com.alura.forum.controller.form;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+@Data
+public class RespostaForm {
+
+    @NotNull @NotEmpty
+    private String mensagem;
+
+}
@@ -0,0 +1,19 @@
+package br.com.alura.forum.controller.form;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+@Data
+public class RespostaImportadaForm {
+
+    @NotNull @NotEmpty
+    private String mensagem;
+
+    private LocalDateTime dataCriacao;
+
+    private Boolean solucao;
+
+}
@@ -1,8 +1,9 @@
 package br.com.alura.forum.controller.form;
 
+import br.com.alura.forum.config.validacao.CursoExistente;
 import br.com.alura.forum.modelo.Curso;
 import br.com.alura.forum.modelo.Topico;
-import br.com.alura.forum.repository.CursoRepository;
+import br.com.alura.forum.service.DicionarioDeCursos;
 import br.com.alura.forum.repository.TopicoRepository;
 import lombok.Data;
 import org.hibernate.validator.constraints.Length;
@@ -26,12 +27,14 @@ public class TopicoForm {
     @NotNull @NotEmpty @Length(min=10)
     private String mensagem;
 
-    @NotNull @NotEmpty
+    @NotNull @NotEmpty @CursoExistente
     private String nomeCurso;
 
 
-    public Topico converter(CursoRepository cursoRepository) {
-        Curso curso = cursoRepository.findByNome(nomeCurso);
+    //o curso vem do dicionário, sem consulta: o @CursoExistente já garantiu que ele existe
+    public Topico converter(DicionarioDeCursos cursos) {
+        Curso curso = cursos.buscar(nomeCurso)
+                .orElseThrow(() -> new IllegalArgumentException("Curso não encontrado: " + nomeCurso));
         return new Topico(titulo, mensagem, curso);
     }
 }
@@ -0,0 +1,39 @@
+package br.com.alura.forum.controller.form;
+
+import br.com.alura.forum.config.validacao.CursoExistente;
+import br.com.alura.forum.modelo.StatusTopico;
+import lombok.Data;
+import org.hibernate.validator.constraints.Length;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Um registro da importação em lote. As validações são as mesmas do TopicoForm; dataCriacao e status são
+ * opcionais (migração de tópicos antigos) e, quando não vêm, ficam com os mesmos valores de um cadastro normal.
+ */
+@Data
+public class TopicoImportadoForm {
+
+    @NotNull @NotEmpty @Length(min=5)
+    private String titulo;
+
+    @NotNull @NotEmpty @Length(min=10)
+    private String mensagem;
+
+    @NotNull @NotEmpty @CursoExistente
+    private String nomeCurso;
+
+    private LocalDateTime dataCriacao;
+
+    private StatusTopico status;
+
+    //opcional, mas "respostas": null (ou uma resposta null) é erro do registro: o @Valid sozinho deixa passar os nulos
+    @NotNull
+    private List<@NotNull @Valid RespostaImportadaForm> respostas = new ArrayList<>();
+
+}
@@ -0,0 +1,49 @@
+package br.com.alura.forum.controller.paginacao;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posição de uma página na paginação por cursor (keyset). Guarda a chave de ordenação do último registro
+ * devolvido, a dataCriacao e o id para desempatar, e o banco continua a partir dela usando o índice, sem
+ * precisar pular os registros das páginas anteriores como acontece com o OFFSET.
+ *
+ * Para o cliente o cursor é opaco: ele só devolve no parâmetro "after" o valor que recebeu em proximoCursor.
+ */
+@Getter
+public class Cursor {
+
+    private static final String SEPARADOR = "|";
+
+    private final LocalDateTime dataCriacao;
+    private final Long id;
+
+    public Cursor(LocalDateTime dataCriacao, Long id) {
+        this.dataCriacao = dataCriacao;
+        this.id = id;
+    }
+
+    public String codificar() {
+        String valor = dataCriacao + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Cursor decodificar(String token) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separador = valor.indexOf(SEPARADOR);
+            if (separador < 0) {
+                throw new CursorInvalidoException(token);
+            }
+            LocalDateTime dataCriacao = LocalDateTime.parse(valor.substring(0, separador));
+            Long id = Long.valueOf(valor.substring(separador + 1));
+            return new Cursor(dataCriacao, id);
+        } catch (IllegalArgumentException | DateTimeParseException e) { // Base64 e Long.valueOf lançam IllegalArgumentException
+            throw new CursorInvalidoException(token);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package br.com.alura.forum.controller.paginacao;
+
+public class CursorInvalidoException extends RuntimeException {
+
+    public CursorInvalidoException(String cursor) {
+        super("Cursor de paginação inválido: " + cursor);
+    }
+}
@@ -0,0 +1,26 @@
+package br.com.alura.forum.evento;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Publicado pelo RespostasController, dentro da transação, quando uma resposta é criada ou removida. Como o
+ * TopicoAlteradoEvento, é entregue aos @TransactionalEventListener só depois do commit.
+ *
+ * O "quando" é a ultimaAtividade do tópico depois da alteração: na criação, a data da nova resposta; na remoção,
+ * a da resposta mais recente que sobrou (ou a criação do tópico, se não sobrou nenhuma).
+ */
+@Data
+public class RespostaAlteradaEvento {
+
+    public enum Tipo {
+        CRIADA, REMOVIDA
+    }
+
+    private final Tipo tipo;
+    private final Long idTopico;
+    private final String nomeCurso;
+    private final LocalDateTime quando;
+
+}
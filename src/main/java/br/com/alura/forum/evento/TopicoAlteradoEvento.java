@@ -0,0 +1,41 @@
+package br.com.alura.forum.evento;
+
+import br.com.alura.forum.modelo.Topico;
+import lombok.Data;
+
+/**
+ * Publicado pelos métodos de escrita do TopicosController, dentro da transação (a importação publica um
+ * TopicosImportadosEvento por lote, com um destes para cada tópico). Quem precisa reagir a uma alteração (cache,
+ * índices em memória) escuta com @TransactionalEventListener, que só entrega o evento depois do commit.
+ */
+@Data
+public class TopicoAlteradoEvento {
+
+    public enum Tipo {
+        CRIADO, ATUALIZADO, REMOVIDO
+    }
+
+    private final Tipo tipo;
+    private final Long idTopico;
+    private final String nomeCurso;
+    //o conteúdo vai junto para o índice de busca não precisar consultar o banco de novo
+    private final String titulo;
+    private final String mensagem;
+
+    public TopicoAlteradoEvento(Tipo tipo, Topico topico) {
+        this.tipo = tipo;
+        this.idTopico = topico.getId();
+        this.nomeCurso = topico.getCurso() == null ? null : topico.getCurso().getNome();
+        this.titulo = topico.getTitulo();
+        this.mensagem = topico.getMensagem();
+    }
+
+    //usado quando o tópico foi gravado sem passar pela entidade (importação em lote)
+    public TopicoAlteradoEvento(Tipo tipo, Long idTopico, String nomeCurso, String titulo, String mensagem) {
+        this.tipo = tipo;
+        this.idTopico = idTopico;
+        this.nomeCurso = nomeCurso;
+        this.titulo = titulo;
+        this.mensagem = mensagem;
+    }
+}
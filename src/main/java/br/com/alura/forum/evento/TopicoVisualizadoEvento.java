@@ -0,0 +1,15 @@
+package br.com.alura.forum.evento;
+
+import lombok.Data;
+
+/**
+ * Publicado pelo GET /topicos/{id} a cada visualização. Não depende de transação: os listeners (@EventListener)
+ * rodam na hora, na thread da requisição, então devem ser rápidos.
+ */
+@Data
+public class TopicoVisualizadoEvento {
+
+    private final Long idTopico;
+    private final String nomeCurso;
+
+}
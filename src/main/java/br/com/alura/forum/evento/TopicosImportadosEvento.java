@@ -0,0 +1,25 @@
+package br.com.alura.forum.evento;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Publicado pela importação em lote, dentro da transação, uma vez por lote gravado. Os caches da listagem avançam uma
+ * geração por curso do lote (e a geral), e não uma por tópico; quem precisa de cada tópico (índice de busca,
+ * tópicos em alta) percorre a lista, com os mesmos dados de um TopicoAlteradoEvento de cadastro. O cache de detalhes
+ * (CacheDeRespostasSerializadas) não escuta: os tópicos são novos, não há detalhe deles no cache.
+ */
+@Data
+public class TopicosImportadosEvento {
+
+    private final List<TopicoAlteradoEvento> topicos;
+
+    public Set<String> getNomesDosCursos() {
+        Set<String> nomes = new TreeSet<>();
+        topicos.forEach(topico -> nomes.add(topico.getNomeCurso()));
+        return nomes;
+    }
+}
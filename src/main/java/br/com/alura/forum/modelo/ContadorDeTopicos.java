@@ -0,0 +1,60 @@
+package br.com.alura.forum.modelo;
+
+import lombok.Data;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Total de tópicos mantido incrementalmente, um registro para o fórum inteiro e um por curso.
+ * Serve de totalElements na listagem paginada, no lugar do SELECT COUNT(*) que o Spring Data
+ * dispara a cada Page.
+ */
+@Data
+@Entity
+public class ContadorDeTopicos {
+
+	public static final String GERAL = "geral";
+
+	@Id
+	private String chave;
+	private Long total;
+
+	public ContadorDeTopicos() {
+	}
+
+	public ContadorDeTopicos(String chave, Long total) {
+		this.chave = chave;
+		this.total = total;
+	}
+
+	public static String chaveDoCurso(Long idCurso) {
+		return "curso:" + idCurso;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((chave == null) ? 0 : chave.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ContadorDeTopicos other = (ContadorDeTopicos) obj;
+		if (chave == null) {
+			if (other.chave != null)
+				return false;
+		} else if (!chave.equals(other.chave))
+			return false;
+		return true;
+	}
+
+}
@@ -6,6 +6,8 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
 
 /**
  *  No @GeneratedValue, tenho que colocar qual é a estratégia, strategy.
@@ -15,6 +17,7 @@ import javax.persistence.Id;
  */
 @Data
 @Entity
+@Table(indexes = @Index(name = "idx_curso_nome", columnList = "nome"))
 public class Curso {
 
 
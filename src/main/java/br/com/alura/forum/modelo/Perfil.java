@@ -1,5 +1,6 @@
 package br.com.alura.forum.modelo;
 
+import br.com.alura.forum.config.security.InvalidacaoDeUsuariosListener;
 import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
@@ -7,6 +8,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.GrantedAuthoritiesContainer;
 
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -14,6 +16,7 @@ import javax.persistence.Id;
 @Getter
 @Setter
 @Entity
+@EntityListeners(InvalidacaoDeUsuariosListener.class)
 public class Perfil implements GrantedAuthority {
 
 
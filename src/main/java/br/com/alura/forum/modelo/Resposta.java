@@ -5,18 +5,22 @@ import lombok.Data;
 import javax.persistence.*;
 import java.time.LocalDateTime;
 
+/**
+ * O índice (topico_id, dataCriacao, id) atende a paginação das respostas de um tópico por cursor.
+ */
 @Data
 @Entity
+@Table(indexes = @Index(name = "idx_resposta_topico_data_id", columnList = "topico_id, dataCriacao, id"))
 public class Resposta {
 
 
 	@Id @GeneratedValue(strategy = GenerationType.IDENTITY)
 	private Long id;
 	private String mensagem;
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	private Topico topico;
 	private LocalDateTime dataCriacao = LocalDateTime.now();
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	private Usuario autor;
 	private Boolean solucao = false;
 
@@ -1,19 +1,25 @@
 package br.com.alura.forum.modelo;
 
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
+import javax.persistence.Table;
+import javax.persistence.Version;
 
 /**
  * Por exemplo, o atributo status é um enum, e quero que o hibernate grave no banco de dados o nome da constante
@@ -23,10 +29,37 @@ import javax.persistence.OneToMany;
  * No caso do @ManyToOne, tem que passar uma propriedade, que é o mappedBy, para ele não achar que é um novo mapeamento
  * , porque na classe, e nela, a resposta, estará mapeado o relacionamento com o tópico. Então, mappedBy = "topico"
  * que é o nome do atributo lá na classe resposta
+ *
+ * Os relacionamentos @ManyToOne são EAGER por padrão na JPA, e cada tópico carregado dispararia as consultas
+ * do autor e do curso mesmo quando não são usados. Por isso ficam LAZY, e quem precisa deles (como o detalhar)
+ * pede explicitamente na consulta, com @EntityGraph.
+ *
+ * Os índices em (dataCriacao, id) atendem a paginação por cursor: o banco posiciona direto no cursor
+ * em vez de percorrer e descartar as linhas das páginas anteriores.
+ *
+ * quantidadeDeRespostas e ultimaAtividade repetem uma informação que está nas respostas, para a listagem
+ * ordenar por "mais respondidos" e "atividade recente" pelo índice, sem agregar a tabela Resposta. São
+ * atualizadas com um update relativo no banco (TopicoRepository.registrarResposta) junto com a gravação
+ * da resposta, e a ReconciliacaoDeContadores corrige qualquer diferença.
+ *
+ * versao é incrementada a cada alteração do tópico, inclusive pelos updates em lote do TopicoRepository (que
+ * fazem isso explicitamente), e vira o ETag do GET /topicos/{id}. Como é um @Version, também impede que duas
+ * edições simultâneas sobrescrevam uma à outra.
+ *
+ * visualizacoes é gravada de tempos em tempos pelo ContadorDeVisualizacoes, com a soma das visualizações
+ * acumuladas em memória, e não mexe na versao. Por isso ela é só de leitura para a JPA (insertable/updatable =
+ * false): o update de um tópico carregado antes de uma gravação das visualizações passaria na checagem da versao
+ * e voltaria a coluna para o valor antigo. O insert usa o default 0 da coluna.
  */
 
 @Data
 @Entity
+@Table(indexes = {
+		@Index(name = "idx_topico_data_id", columnList = "dataCriacao, id"),
+		@Index(name = "idx_topico_curso_data_id", columnList = "curso_id, dataCriacao, id"),
+		@Index(name = "idx_topico_respostas_id", columnList = "quantidadeDeRespostas, id"),
+		@Index(name = "idx_topico_atividade_id", columnList = "ultimaAtividade, id")
+})
 public class Topico {
 
 	@Id @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -36,9 +69,16 @@ public class Topico {
 	private LocalDateTime dataCriacao = LocalDateTime.now();
 	@Enumerated(EnumType.STRING)
 	private StatusTopico status = StatusTopico.NAO_RESPONDIDO;
-	@ManyToOne
+	@ColumnDefault("0") @Column(nullable = false)
+	private Integer quantidadeDeRespostas = 0;
+	private LocalDateTime ultimaAtividade = dataCriacao;
+	@Version @ColumnDefault("0") @Column(nullable = false)
+	private Long versao = 0L;
+	@ColumnDefault("0") @Column(nullable = false, insertable = false, updatable = false)
+	private Long visualizacoes = 0L;
+	@ManyToOne(fetch = FetchType.LAZY)
 	private Usuario autor;
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	private Curso curso;
 	@OneToMany(mappedBy = "topico")
 	private List<Resposta> respostas = new ArrayList<>();
@@ -1,6 +1,8 @@
 package br.com.alura.forum.modelo;
 
+import br.com.alura.forum.config.security.InvalidacaoDeUsuariosListener;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -12,6 +14,7 @@ import java.util.List;
 //UserDetails= a interface para dizer que essa é a classe que tem detalhes de um usuário
 @Data
 @Entity
+@EntityListeners(InvalidacaoDeUsuariosListener.class) // tira o usuario alterado do cache de usuarios autenticados
 public class Usuario implements UserDetails {
 
 	@Id @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -22,6 +25,10 @@ public class Usuario implements UserDetails {
 
 	@ManyToMany(fetch = FetchType.EAGER) //quando eu carregar o usuário já carrego a lista de perfis, porque vou precisar dos perfis de acesso do usuário.
 	private List<Perfil> perfis = new ArrayList<>();
+	//Com o @Version, mudar só os perfis também conta como alteração do usuário: o Hibernate incrementa a versao e
+	//dispara o @PostUpdate, que tira o usuário do cache de usuários autenticados (perfil revogado vale na hora).
+	@Version @ColumnDefault("0") @Column(nullable = false)
+	private Long versao = 0L;
 
 	@Override
 	public int hashCode() {
@@ -0,0 +1,24 @@
+package br.com.alura.forum.repository;
+
+import br.com.alura.forum.modelo.ContadorDeTopicos;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+
+public interface ContadorDeTopicosRepository extends JpaRepository<ContadorDeTopicos, String> {
+
+    // update relativo no próprio banco: dois cadastros simultâneos não sobrescrevem o incremento um do outro
+    @Modifying
+    @Query("update ContadorDeTopicos c set c.total = c.total + :delta where c.chave = :chave")
+    int somar(@Param("chave") String chave, @Param("delta") long delta);
+
+    // SELECT ... FOR UPDATE em todos os contadores, usado pela reconciliação para contar sem concorrer com os cadastros
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from ContadorDeTopicos c order by c.chave")
+    List<ContadorDeTopicos> travarTodos();
+}
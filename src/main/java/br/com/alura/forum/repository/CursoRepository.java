@@ -8,4 +8,7 @@ public interface CursoRepository extends JpaRepository<Curso, Long> {
 
     Curso findByNome(String nome);
 
+    // nomes repetidos: vale o curso de menor id, o mesmo que o DicionarioDeCursos guarda
+    Curso findFirstByNomeOrderById(String nome);
+
 }
@@ -0,0 +1,43 @@
+package br.com.alura.forum.repository;
+
+import br.com.alura.forum.controller.dto.RespostaDto;
+import br.com.alura.forum.modelo.Resposta;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface RespostaRepository extends JpaRepository<Resposta, Long> {
+
+    String RESPOSTA_DTO = "new br.com.alura.forum.controller.dto.RespostaDto(r.id, r.mensagem, r.dataCriacao, a.nome)";
+
+    // Respostas de um tópico por cursor, da mais antiga para a mais nova (dataCriacao e id para desempatar).
+    // Já voltam como RespostaDto, com o nome do autor no mesmo select, e o Pageable só limita a quantidade.
+    @Query("select " + RESPOSTA_DTO + " from Resposta r left join r.autor a where r.topico.id = :idTopico " +
+            "order by r.dataCriacao asc, r.id asc")
+    List<RespostaDto> buscarPrimeiras(@Param("idTopico") Long idTopico, Pageable limite);
+
+    @Query("select " + RESPOSTA_DTO + " from Resposta r left join r.autor a where r.topico.id = :idTopico " +
+            "and (r.dataCriacao > :dataCriacao or (r.dataCriacao = :dataCriacao and r.id > :id)) " +
+            "order by r.dataCriacao asc, r.id asc")
+    List<RespostaDto> buscarApos(@Param("idTopico") Long idTopico, @Param("dataCriacao") LocalDateTime dataCriacao,
+                                 @Param("id") Long id, Pageable limite);
+
+    // Tópicos em alta: respostas criadas na janela de reconstrução (id do tópico, nome do curso, dataCriacao)
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = TopicoRepository.TAMANHO_DO_LOTE))
+    @Query("select t.id, c.nome, r.dataCriacao from Resposta r join r.topico t left join t.curso c where r.dataCriacao >= :desde")
+    Stream<Object[]> buscarCriadasDesde(@Param("desde") LocalDateTime desde);
+
+    // só remove se a resposta for mesmo do tópico da URL; devolve 0 quando não é
+    @Modifying
+    @Query("delete from Resposta r where r.id = :id and r.topico.id = :idTopico")
+    int removerDoTopico(@Param("id") Long id, @Param("idTopico") Long idTopico);
+
+}
@@ -1,11 +1,25 @@
 package br.com.alura.forum.repository;
 
+import br.com.alura.forum.controller.dto.TopicoDto;
+import br.com.alura.forum.controller.dto.TopicoExportadoDto;
+import br.com.alura.forum.modelo.StatusTopico;
 import br.com.alura.forum.modelo.Topico;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  *  Pensando nisso, o pessoal do Spring Boot criou uma facilidade. Você não precisa criar uma classe,
@@ -19,7 +33,123 @@ import java.util.List;
  *  @Repository, @Component. Esse, por ser interface, não precisa. O Spring já encontra a classe automaticamente.
  */
 public interface TopicoRepository extends JpaRepository<Topico, Long> {
-    Page<Topico> findByCurso_Nome(String nomeCurso, Pageable paginacao);
+
+    String TAMANHO_DO_LOTE = "500";
+
+    String TOPICO_DTO = "new br.com.alura.forum.controller.dto.TopicoDto(t.id, t.titulo, t.mensagem, t.dataCriacao, " +
+            "t.quantidadeDeRespostas, t.ultimaAtividade)";
+
+    // Plano de busca do detalhar: tópico, autor e curso numa única consulta com join. As respostas vêm paginadas
+    // do RespostaRepository, em vez de todas junto com o tópico.
+    @EntityGraph(attributePaths = {"autor", "curso"})
+    @Query("select t from Topico t where t.id = :id")
+    Optional<Topico> buscarComAutor(@Param("id") Long id);
+
+    // Projeções da listagem: o Hibernate monta o TopicoDto direto das colunas, sem criar entidades gerenciadas
+    // (nem carregar autor e curso). Com retorno Slice o Spring Data não faz o count, o total vem do ContadorDeTopicos.
+    @Query("select " + TOPICO_DTO + " from Topico t")
+    Slice<TopicoDto> listar(Pageable paginacao);
+
+    @Query("select " + TOPICO_DTO + " from Topico t where t.curso.id = :idCurso")
+    Slice<TopicoDto> listarPorCurso(@Param("idCurso") Long idCurso, Pageable paginacao);
+
+    // enquanto o contador não existe, a listagem usa as versões com count
+    @Query(value = "select " + TOPICO_DTO + " from Topico t", countQuery = "select count(t) from Topico t")
+    Page<TopicoDto> listarComTotal(Pageable paginacao);
+
+    @Query(value = "select " + TOPICO_DTO + " from Topico t where t.curso.id = :idCurso",
+            countQuery = "select count(t) from Topico t where t.curso.id = :idCurso")
+    Page<TopicoDto> listarPorCursoComTotal(@Param("idCurso") Long idCurso, Pageable paginacao);
+
+    // Exportação: percorre a tabela inteira com um cursor somente-leitura (forward-only), buscando TAMANHO_DO_LOTE linhas
+    // por vez no banco, em vez de trazer tudo para a memória. Precisa de uma transação aberta enquanto o Stream é lido
+    // e de useCursorFetch=true na URL do MySQL. Ordenado por id para a exportação poder ser retomada (aposId).
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = TAMANHO_DO_LOTE),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("select new br.com.alura.forum.controller.dto.TopicoExportadoDto(t.id, t.titulo, t.mensagem, t.dataCriacao, " +
+            "t.status, c.nome, a.nome) from Topico t left join t.curso c left join t.autor a " +
+            "where t.id > :aposId and (:idCurso is null or t.curso.id = :idCurso) " +
+            "and (:status is null or t.status = :status) and (:desde is null or t.dataCriacao >= :desde) " +
+            "order by t.id")
+    Stream<TopicoExportadoDto> exportar(@Param("aposId") Long aposId, @Param("idCurso") Long idCurso,
+                                        @Param("status") StatusTopico status, @Param("desde") LocalDateTime desde);
+
+    @Query("select " + TOPICO_DTO + " from Topico t where t.id in :ids")
+    List<TopicoDto> buscarPorIds(@Param("ids") Collection<Long> ids);
+
+    // Nova resposta: update relativo no próprio banco, como nos contadores de tópicos. Também trava a linha do
+    // tópico até o commit, então duas respostas simultâneas não perdem o incremento uma da outra.
+    // Devolve 0 quando o tópico não existe.
+    @Modifying
+    @Query("update Topico t set t.quantidadeDeRespostas = t.quantidadeDeRespostas + 1, t.ultimaAtividade = :quando, " +
+            "t.versao = t.versao + 1 " +
+            "where t.id = :id")
+    int registrarResposta(@Param("id") Long id, @Param("quando") LocalDateTime quando);
+
+    // Resposta removida (o delete vem antes, na mesma transação): a ultimaAtividade volta para a resposta mais recente
+    // que sobrou, ou para a criação do tópico, com a mesma regra da reconciliação (corrigirRespostas).
+    @Modifying
+    @Query("update Topico t set t.quantidadeDeRespostas = t.quantidadeDeRespostas - 1, t.versao = t.versao + 1, " +
+            "t.ultimaAtividade = coalesce((select max(r.dataCriacao) from Resposta r where r.topico = t), t.dataCriacao) " +
+            "where t.id = :id and t.quantidadeDeRespostas > 0")
+    int registrarRemocaoDeResposta(@Param("id") Long id);
+
+    @Query("select t.ultimaAtividade from Topico t where t.id = :id")
+    Optional<LocalDateTime> buscarUltimaAtividade(@Param("id") Long id);
+
+    // Reconciliação: recalcula a partir das respostas, numa faixa de ids, só os tópicos que estão diferentes.
+    // Um único update por faixa, sem carregar os tópicos.
+    @Modifying
+    @Query("update Topico t set t.versao = t.versao + 1, " +
+            "t.quantidadeDeRespostas = (select count(r) from Resposta r where r.topico = t), " +
+            "t.ultimaAtividade = coalesce((select max(r.dataCriacao) from Resposta r where r.topico = t), t.dataCriacao) " +
+            "where t.id > :de and t.id <= :ate and (t.ultimaAtividade is null " +
+            "or t.quantidadeDeRespostas <> (select count(r) from Resposta r where r.topico = t) " +
+            "or t.ultimaAtividade <> coalesce((select max(r.dataCriacao) from Resposta r where r.topico = t), t.dataCriacao))")
+    int corrigirRespostas(@Param("de") Long de, @Param("ate") Long ate);
+
+    // ETag do detalhar: só a versão, sem carregar o tópico
+    @Query("select t.versao from Topico t where t.id = :id")
+    Optional<Long> buscarVersao(@Param("id") Long id);
+
+    @Query("select max(t.id) from Topico t")
+    Long maiorId();
+
+    @Query("select c.nome from Topico t join t.curso c where t.id = :id")
+    Optional<String> nomeDoCurso(@Param("id") Long id);
+
+    // Reconstrução do índice de busca: só as colunas indexadas, em lotes por id (id, titulo, mensagem)
+    @Query("select t.id, t.titulo, t.mensagem from Topico t where t.id > :aposId order by t.id")
+    List<Object[]> buscarParaIndexar(@Param("aposId") Long aposId, Pageable limite);
+
+    // Tópicos em alta: tópicos criados na janela de reconstrução (id, nome do curso, dataCriacao)
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = TAMANHO_DO_LOTE))
+    @Query("select t.id, c.nome, t.dataCriacao from Topico t left join t.curso c where t.dataCriacao >= :desde")
+    Stream<Object[]> buscarCriadosDesde(@Param("desde") LocalDateTime desde);
+
+    @Query("select t.curso.id, count(t) from Topico t where t.curso is not null group by t.curso.id")
+    List<Object[]> contarPorCurso();
+
+    // Paginação por cursor: como o retorno é List e não Page, o Spring Data não dispara o count.
+    // O Pageable aqui só serve para limitar a quantidade de registros (LIMIT), sempre na página 0.
+    @Query("select " + TOPICO_DTO + " from Topico t order by t.dataCriacao desc, t.id desc")
+    List<TopicoDto> buscarPrimeiros(Pageable limite);
+
+    @Query("select " + TOPICO_DTO + " from Topico t " +
+            "where t.dataCriacao < :dataCriacao or (t.dataCriacao = :dataCriacao and t.id < :id) " +
+            "order by t.dataCriacao desc, t.id desc")
+    List<TopicoDto> buscarApos(@Param("dataCriacao") LocalDateTime dataCriacao, @Param("id") Long id, Pageable limite);
+
+    @Query("select " + TOPICO_DTO + " from Topico t where t.curso.id = :idCurso order by t.dataCriacao desc, t.id desc")
+    List<TopicoDto> buscarPrimeirosDoCurso(@Param("idCurso") Long idCurso, Pageable limite);
+
+    @Query("select " + TOPICO_DTO + " from Topico t where t.curso.id = :idCurso " +
+            "and (t.dataCriacao < :dataCriacao or (t.dataCriacao = :dataCriacao and t.id < :id)) " +
+            "order by t.dataCriacao desc, t.id desc")
+    List<TopicoDto> buscarAposDoCurso(@Param("idCurso") Long idCurso, @Param("dataCriacao") LocalDateTime dataCriacao,
+                                   @Param("id") Long id, Pageable limite);
 }
 /**
  * Essa interface, eu preciso herdar de alguma interface do Spring data. O Spring data tem algumas interfaces
@@ -0,0 +1,65 @@
+package br.com.alura.forum.service;
+
+import br.com.alura.forum.modelo.ContadorDeTopicos;
+import br.com.alura.forum.modelo.Curso;
+import br.com.alura.forum.repository.ContadorDeTopicosRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Mantém os contadores de tópicos dentro da mesma transação do cadastro/remoção, assim o total só
+ * muda se o tópico realmente for gravado.
+ *
+ * Os contadores são travados sempre na mesma ordem da chave (o do curso antes do geral, porque
+ * "curso:" vem antes de "geral"), a mesma ordem em que a reconciliação trava todos eles, para não
+ * provocar deadlock entre as duas.
+ */
+@Service
+public class ContadorDeTopicosService {
+
+    @Autowired
+    private ContadorDeTopicosRepository repository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarCriacao(Curso curso) {
+        somar(curso, 1);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarRemocao(Curso curso) {
+        somar(curso, -1);
+    }
+
+    //Importação em lote: um update por curso e um no geral, em vez de um por tópico. Os cursos são somados na
+    //ordem da chave, a mesma dos outros métodos, pelo mesmo motivo (deadlock).
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarCriacoes(Map<Long, Long> quantidadePorCurso) {
+        quantidadePorCurso.entrySet().stream()
+                .sorted(Comparator.comparing(curso -> ContadorDeTopicos.chaveDoCurso(curso.getKey())))
+                .forEach(curso -> repository.somar(ContadorDeTopicos.chaveDoCurso(curso.getKey()), curso.getValue()));
+        long total = quantidadePorCurso.values().stream().mapToLong(Long::longValue).sum();
+        if (total > 0) {
+            repository.somar(ContadorDeTopicos.GERAL, total);
+        }
+    }
+
+    //Vazio quando o contador ainda não existe (curso novo antes da próxima reconciliação). Nesse caso a
+    //listagem volta a usar o COUNT(*).
+    public Optional<Long> total(Curso curso) {
+        String chave = curso == null ? ContadorDeTopicos.GERAL : ContadorDeTopicos.chaveDoCurso(curso.getId());
+        return repository.findById(chave).map(ContadorDeTopicos::getTotal);
+    }
+
+    private void somar(Curso curso, long delta) {
+        if (curso != null) {
+            repository.somar(ContadorDeTopicos.chaveDoCurso(curso.getId()), delta);
+        }
+        repository.somar(ContadorDeTopicos.GERAL, delta);
+    }
+}
@@ -0,0 +1,166 @@
+package br.com.alura.forum.service;
+
+import br.com.alura.forum.evento.TopicoVisualizadoEvento;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Conta as visualizações dos tópicos (GET /topicos/{id}) sem um UPDATE por requisição.
+ *
+ * Cada visualização só soma 1 num LongAdder do tópico, em memória. O LongAdder espalha as somas simultâneas em
+ * células diferentes (uma por thread em disputa), então nem o tópico mais visto faz as requisições esperarem umas
+ * pelas outras. A cada forum.visualizacoes.gravacao.intervalo uma thread própria grava as somas acumuladas no banco,
+ * em lotes de updates relativos (visualizacoes = visualizacoes + ?), e os contadores recomeçam vazios.
+ *
+ * Se o total pendente passa de forum.visualizacoes.pendentes.maximo, a gravação é antecipada. Assim uma queda da
+ * aplicação perde no máximo esse tanto de visualizações (mais as que chegarem durante a gravação em andamento), e
+ * não tudo o que entrou desde a última gravação. Na parada normal (@PreDestroy) as pendentes são gravadas.
+ *
+ * As visualizações não mudam a versao do tópico: senão o ETag e os caches do detalhe mudariam a cada gravação.
+ * Por isso o ETag do detalhe é fraco, e a JPA nunca grava a coluna (Topico.visualizacoes).
+ */
+@Component
+public class ContadorDeVisualizacoes {
+
+    private static final Logger log = LoggerFactory.getLogger(ContadorDeVisualizacoes.class);
+    static final int TAMANHO_DO_LOTE = 500;
+    private static final String SOMAR = "update Topico set visualizacoes = visualizacoes + ? where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transacao;
+    private final long intervalo;
+    private final long maximoPendente;
+
+    //Na gravação, o mapa inteiro é trocado por um vazio. Uma visualização que pegou o contador do mapa antigo logo
+    //antes da troca ainda soma nele, então o mapa antigo é somado de novo na gravação seguinte antes de ser descartado.
+    private volatile Map<Long, LongAdder> pendentes = new ConcurrentHashMap<>();
+    private Map<Long, LongAdder> anteriores = Collections.emptyMap();
+    private final LongAdder totalPendente = new LongAdder();
+    private final AtomicBoolean antecipada = new AtomicBoolean();
+    private final Semaphore acordar = new Semaphore(0);
+    private final Timer tempoDeGravacao;
+    private volatile Thread gravacao;
+
+    public ContadorDeVisualizacoes(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, MeterRegistry registry,
+                                   @Value("${forum.visualizacoes.gravacao.intervalo}") long intervalo,
+                                   @Value("${forum.visualizacoes.pendentes.maximo}") long maximoPendente) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.intervalo = intervalo;
+        this.maximoPendente = maximoPendente;
+        registry.gauge("forum.visualizacoes.pendentes", totalPendente, LongAdder::sum);
+        this.tempoDeGravacao = registry.timer("forum.visualizacoes.gravacao");
+    }
+
+    @EventListener
+    public void topicoVisualizado(TopicoVisualizadoEvento evento) {
+        pendentes.computeIfAbsent(evento.getIdTopico(), id -> new LongAdder()).increment();
+        totalPendente.increment();
+        if (totalPendente.sum() >= maximoPendente && antecipada.compareAndSet(false, true)) {
+            acordar.release();
+        }
+    }
+
+    //Visualizações do tópico que ainda não estão no banco (só as desta instância)
+    public long pendentes(Long idTopico) {
+        LongAdder contador = pendentes.get(idTopico);
+        return contador == null ? 0 : contador.sum();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void naSubida() {
+        Thread thread = new Thread(this::gravarPeriodicamente, "visualizacoes");
+        thread.setDaemon(true);
+        gravacao = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public void naParada() throws InterruptedException {
+        Thread thread = gravacao;
+        gravacao = null;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(intervalo);
+        }
+        gravar();
+        gravar(); // a segunda só pega o que chegou no mapa antigo durante a primeira
+    }
+
+    private void gravarPeriodicamente() {
+        while (gravacao == Thread.currentThread()) {
+            try {
+                acordar.tryAcquire(intervalo, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            antecipada.set(false);
+            try {
+                gravar();
+            } catch (RuntimeException e) {
+                log.error("Falha ao gravar as visualizações; elas continuam pendentes para a próxima gravação", e);
+            }
+        }
+    }
+
+    synchronized void gravar() {
+        Map<Long, LongAdder> atuais = pendentes;
+        pendentes = new ConcurrentHashMap<>();
+
+        // ordenado por id: duas instâncias gravando ao mesmo tempo travam as linhas na mesma ordem, sem deadlock
+        Map<Long, Long> deltas = new TreeMap<>();
+        somar(anteriores, deltas);
+        somar(atuais, deltas);
+        anteriores = atuais;
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Long>> restantes = new ArrayList<>(deltas.entrySet());
+        try {
+            tempoDeGravacao.record(() -> {
+                while (!restantes.isEmpty()) {
+                    List<Map.Entry<Long, Long>> lote = restantes.subList(0, Math.min(TAMANHO_DO_LOTE, restantes.size()));
+                    List<Object[]> argumentos = new ArrayList<>(lote.size());
+                    lote.forEach(delta -> argumentos.add(new Object[]{delta.getValue(), delta.getKey()}));
+                    transacao.executeWithoutResult(status -> jdbcTemplate.batchUpdate(SOMAR, argumentos));
+                    totalPendente.add(-lote.stream().mapToLong(Map.Entry::getValue).sum());
+                    lote.clear();
+                }
+            });
+        } catch (RuntimeException e) {
+            // o que não foi gravado volta para os contadores (e continua contando no total pendente)
+            restantes.forEach(delta -> pendentes.computeIfAbsent(delta.getKey(), id -> new LongAdder()).add(delta.getValue()));
+            throw e;
+        }
+    }
+
+    private static void somar(Map<Long, LongAdder> contadores, Map<Long, Long> deltas) {
+        contadores.forEach((id, contador) -> {
+            long delta = contador.sumThenReset();
+            if (delta != 0) {
+                deltas.merge(id, delta, Long::sum);
+            }
+        });
+    }
+}
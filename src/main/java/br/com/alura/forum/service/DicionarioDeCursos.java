@@ -0,0 +1,101 @@
+package br.com.alura.forum.service;
+
+import br.com.alura.forum.modelo.Curso;
+import br.com.alura.forum.repository.CursoRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Os cursos por nome, em memória. Os cursos quase nunca mudam, e o nome do curso chega em todo cadastro de tópico
+ * e em toda listagem filtrada: com o dicionário, o cadastro já tem o curso (e o id dele) sem consultar o banco, e
+ * a listagem filtra direto pelo curso_id do tópico, sem o join com Curso.
+ *
+ * O mapa é imutável e trocado inteiro (volatile) a cada recarga, então as leituras não travam nada. A recarga é
+ * periódica (forum.cursos.dicionario.intervalo); um nome que não está no dicionário ainda é procurado no banco
+ * (pelo índice de nome) e, se existir, entra no dicionário sem esperar a próxima recarga.
+ *
+ * Um nome que também não está no banco fica guardado como ausente por forum.cursos.dicionario.ausentes.expiracao:
+ * repetido nesse tempo (um filtro com erro de digitação, por exemplo), ele não volta ao banco. A consulta ao banco
+ * fica fora do lock; só a troca do mapa é sincronizada.
+ *
+ * Os Curso guardados aqui estão fora de qualquer EntityManager (detached) e são compartilhados entre as
+ * requisições: servem para ler e para referenciar no @ManyToOne do tópico, mas não devem ser alterados.
+ */
+@Component
+public class DicionarioDeCursos {
+
+    static final int MAXIMO_DE_AUSENTES = 10_000;
+
+    private final CursoRepository cursoRepository;
+    private final Cache<String, Boolean> ausentes;
+    private volatile Map<String, Curso> porNome; // null até a primeira carga
+
+    public DicionarioDeCursos(CursoRepository cursoRepository,
+                              @Value("${forum.cursos.dicionario.ausentes.expiracao}") long expiracaoDosAusentes) {
+        this.cursoRepository = cursoRepository;
+        this.ausentes = Caffeine.newBuilder()
+                .expireAfterWrite(expiracaoDosAusentes, TimeUnit.MILLISECONDS)
+                .maximumSize(MAXIMO_DE_AUSENTES) // os nomes vêm da requisição: o limite impede que eles ocupem a memória
+                .build();
+    }
+
+    public Optional<Curso> buscar(String nome) {
+        if (nome == null) {
+            return Optional.empty();
+        }
+        Map<String, Curso> cursos = porNome;
+        if (cursos == null) {
+            cursos = carregar();
+        }
+        Curso curso = cursos.get(nome);
+        return curso != null ? Optional.of(curso) : buscarNoBanco(nome);
+    }
+
+    @Scheduled(fixedDelayString = "${forum.cursos.dicionario.intervalo}",
+            initialDelayString = "${forum.cursos.dicionario.intervalo}")
+    public void recarregar() {
+        carregar();
+        ausentes.invalidateAll();
+    }
+
+    private synchronized Map<String, Curso> carregar() {
+        Map<String, Curso> cursos = new HashMap<>();
+        cursoRepository.findAll(Sort.by("id")).forEach(curso -> cursos.putIfAbsent(curso.getNome(), curso));
+        porNome = Collections.unmodifiableMap(cursos);
+        return porNome;
+    }
+
+    //curso criado depois da última recarga
+    private Optional<Curso> buscarNoBanco(String nome) {
+        if (ausentes.getIfPresent(nome) != null) {
+            return Optional.empty();
+        }
+        Curso curso = cursoRepository.findFirstByNomeOrderById(nome);
+        if (curso == null) {
+            ausentes.put(nome, Boolean.TRUE);
+            return Optional.empty();
+        }
+        return Optional.of(incluir(nome, curso));
+    }
+
+    private synchronized Curso incluir(String nome, Curso curso) {
+        Curso incluido = porNome.get(nome); // outra requisição pode ter acabado de incluí-lo
+        if (incluido != null) {
+            return incluido;
+        }
+        Map<String, Curso> cursos = new HashMap<>(porNome);
+        cursos.put(nome, curso);
+        porNome = Collections.unmodifiableMap(cursos);
+        return curso;
+    }
+}
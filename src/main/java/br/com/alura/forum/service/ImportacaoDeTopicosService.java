@@ -0,0 +1,249 @@
+package br.com.alura.forum.service;
+
+import br.com.alura.forum.controller.dto.ResultadoDaImportacaoDto;
+import br.com.alura.forum.controller.form.RespostaImportadaForm;
+import br.com.alura.forum.controller.form.TopicoImportadoForm;
+import br.com.alura.forum.evento.TopicoAlteradoEvento;
+import br.com.alura.forum.evento.TopicosImportadosEvento;
+import br.com.alura.forum.modelo.Curso;
+import br.com.alura.forum.modelo.StatusTopico;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedRuntimeException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Importação em lote de tópicos (e das suas respostas).
+ *
+ * O cadastro normal grava pela JPA, e com GenerationType.IDENTITY o Hibernate não consegue agrupar os inserts:
+ * precisa de cada id logo depois do insert. Aqui os inserts vão direto pelo JDBC, em lotes (addBatch), e os ids
+ * gerados pelo auto_increment voltam todos juntos no getGeneratedKeys; com rewriteBatchedStatements=true na URL
+ * o driver do MySQL manda cada lote como um único insert de várias linhas.
+ *
+ * Os cursos vêm do DicionarioDeCursos, sem consulta por registro. Cada lote é gravado numa transação própria: um registro com erro
+ * não impede os outros, e o erro volta no resultado com a posição do registro. Se o banco recusar o lote (um título
+ * maior que a coluna, por exemplo), a transação volta inteira e o lote é regravado registro por registro: só os
+ * registros recusados viram erro, e a importação continua com o próximo lote.
+ */
+@Service
+public class ImportacaoDeTopicosService {
+
+    static final int TAMANHO_DO_LOTE = 500;
+
+    private static final String INSERIR_TOPICO = "insert into Topico (titulo, mensagem, dataCriacao, status, autor_id, curso_id, " +
+            "quantidadeDeRespostas, ultimaAtividade) values (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERIR_RESPOSTA = "insert into Resposta (mensagem, topico_id, dataCriacao, autor_id, solucao) " +
+            "values (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DicionarioDeCursos cursos;
+
+    @Autowired
+    private ContadorDeTopicosService contadorDeTopicos;
+
+    @Autowired
+    private ApplicationEventPublisher eventos;
+
+    @Autowired
+    private Validator validator;
+
+    private final TransactionTemplate transacao;
+
+    public ImportacaoDeTopicosService(PlatformTransactionManager transactionManager) {
+        this.transacao = new TransactionTemplate(transactionManager);
+    }
+
+    //Lê os registros um a um (o MappingIterator aceita tanto um array JSON quanto um JSON por linha) e grava a cada
+    //TAMANHO_DO_LOTE registros válidos, então a memória usada não depende do tamanho do arquivo.
+    public ResultadoDaImportacaoDto importar(MappingIterator<TopicoImportadoForm> registros, Long idAutor) {
+        ResultadoDaImportacaoDto resultado = new ResultadoDaImportacaoDto();
+        List<RegistroValido> lote = new ArrayList<>(TAMANHO_DO_LOTE);
+
+        int linha = 0;
+        try {
+            while (registros.hasNextValue()) {
+                linha++;
+                try {
+                    TopicoImportadoForm form = registros.nextValue();
+                    Curso curso = validar(form, linha, resultado);
+                    if (curso != null) {
+                        lote.add(new RegistroValido(linha, form, curso));
+                    }
+                } catch (JsonMappingException e) { // JSON bem formado, mas com um campo inválido: pula só esse registro
+                    resultado.adicionarErro(linha, campo(e), e.getOriginalMessage());
+                }
+                if (lote.size() == TAMANHO_DO_LOTE) {
+                    gravar(lote, idAutor, resultado);
+                    lote.clear();
+                }
+            }
+        } catch (JsonProcessingException e) { // JSON mal formado: não dá para achar o começo do próximo registro
+            resultado.adicionarErro(linha, null, "JSON inválido: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            resultado.adicionarErro(linha, null, "Erro na leitura: " + e.getMessage());
+        }
+        gravar(lote, idAutor, resultado);
+        return resultado;
+    }
+
+    private Curso validar(TopicoImportadoForm form, int linha, ResultadoDaImportacaoDto resultado) {
+        if (form == null) {
+            resultado.adicionarErro(linha, null, "registro vazio");
+            return null;
+        }
+        boolean valido = true;
+        for (ConstraintViolation<TopicoImportadoForm> erro : validator.validate(form)) {
+            resultado.adicionarErro(linha, erro.getPropertyPath().toString(), erro.getMessage());
+            valido = false;
+        }
+        // curso inexistente já é um erro do @CursoExistente
+        return valido ? cursos.buscar(form.getNomeCurso()).orElse(null) : null;
+    }
+
+    private void gravar(List<RegistroValido> lote, Long idAutor, ResultadoDaImportacaoDto resultado) {
+        if (lote.isEmpty()) {
+            return;
+        }
+        try {
+            Integer respostas = transacao.execute(status -> gravarNaTransacao(lote, idAutor));
+            resultado.somar(lote.size(), respostas);
+        } catch (DataAccessException | TransactionException e) {
+            if (lote.size() == 1) {
+                resultado.adicionarErro(lote.get(0).linha, null, "Registro recusado pelo banco: " + mensagem(e));
+            } else { // não dá para saber qual registro o banco recusou: regrava um por um
+                for (RegistroValido registro : lote) {
+                    gravar(List.of(registro), idAutor, resultado);
+                }
+            }
+        }
+    }
+
+    private int gravarNaTransacao(List<RegistroValido> lote, Long idAutor) {
+        LocalDateTime agora = LocalDateTime.now(); // data de quem não informou dataCriacao
+        List<Long> ids = inserirTopicos(lote, idAutor, agora);
+        int respostas = inserirRespostas(lote, ids, idAutor, agora);
+
+        Map<Long, Long> quantidadePorCurso = new HashMap<>();
+        List<TopicoAlteradoEvento> topicos = new ArrayList<>(lote.size());
+        for (int i = 0; i < lote.size(); i++) {
+            RegistroValido registro = lote.get(i);
+            quantidadePorCurso.merge(registro.curso.getId(), 1L, Long::sum);
+            topicos.add(new TopicoAlteradoEvento(TopicoAlteradoEvento.Tipo.CRIADO, ids.get(i),
+                    registro.curso.getNome(), registro.form.getTitulo(), registro.form.getMensagem()));
+        }
+        contadorDeTopicos.registrarCriacoes(quantidadePorCurso);
+        eventos.publishEvent(new TopicosImportadosEvento(topicos)); // um evento por lote, e não por tópico
+        return respostas;
+    }
+
+    private static String mensagem(NestedRuntimeException e) {
+        Throwable causa = e.getMostSpecificCause();
+        return causa.getMessage() == null ? causa.getClass().getSimpleName() : causa.getMessage();
+    }
+
+    private List<Long> inserirTopicos(List<RegistroValido> lote, Long idAutor, LocalDateTime agora) {
+        List<Long> ids = jdbcTemplate.execute((ConnectionCallback<List<Long>>) conexao -> {
+            try (PreparedStatement insert = conexao.prepareStatement(INSERIR_TOPICO, Statement.RETURN_GENERATED_KEYS)) {
+                for (RegistroValido registro : lote) {
+                    TopicoImportadoForm form = registro.form;
+                    insert.setString(1, form.getTitulo());
+                    insert.setString(2, form.getMensagem());
+                    insert.setTimestamp(3, Timestamp.valueOf(form.getDataCriacao() == null ? agora : form.getDataCriacao()));
+                    insert.setString(4, (form.getStatus() == null ? StatusTopico.NAO_RESPONDIDO : form.getStatus()).name());
+                    insert.setObject(5, idAutor);
+                    insert.setLong(6, registro.curso.getId());
+                    insert.setInt(7, form.getRespostas().size());
+                    insert.setTimestamp(8, Timestamp.valueOf(ultimaAtividade(form, agora)));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                List<Long> gerados = new ArrayList<>(lote.size());
+                try (ResultSet chaves = insert.getGeneratedKeys()) {
+                    while (chaves.next()) {
+                        gerados.add(chaves.getLong(1));
+                    }
+                }
+                return gerados;
+            }
+        });
+        if (ids == null || ids.size() != lote.size()) {
+            throw new IllegalStateException("O banco não devolveu os ids de todos os tópicos importados");
+        }
+        return ids;
+    }
+
+    private static LocalDateTime ultimaAtividade(TopicoImportadoForm form, LocalDateTime agora) {
+        LocalDateTime ultima = form.getDataCriacao() == null ? agora : form.getDataCriacao();
+        for (RespostaImportadaForm resposta : form.getRespostas()) {
+            LocalDateTime quando = resposta.getDataCriacao() == null ? agora : resposta.getDataCriacao();
+            if (quando.isAfter(ultima)) {
+                ultima = quando;
+            }
+        }
+        return ultima;
+    }
+
+    private int inserirRespostas(List<RegistroValido> lote, List<Long> ids, Long idAutor, LocalDateTime agora) {
+        List<Object[]> respostas = new ArrayList<>();
+        for (int i = 0; i < lote.size(); i++) {
+            for (RespostaImportadaForm resposta : lote.get(i).form.getRespostas()) {
+                respostas.add(new Object[]{
+                        resposta.getMensagem(),
+                        ids.get(i),
+                        Timestamp.valueOf(resposta.getDataCriacao() == null ? agora : resposta.getDataCriacao()),
+                        idAutor,
+                        Boolean.TRUE.equals(resposta.getSolucao())
+                });
+            }
+        }
+        if (!respostas.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERIR_RESPOSTA, respostas);
+        }
+        return respostas.size();
+    }
+
+    private static String campo(JsonMappingException e) {
+        return e.getPath().stream()
+                .map(referencia -> referencia.getFieldName() != null ? referencia.getFieldName() : "[" + referencia.getIndex() + "]")
+                .collect(Collectors.joining("."));
+    }
+
+    private static class RegistroValido {
+
+        private final int linha;
+        private final TopicoImportadoForm form;
+        private final Curso curso;
+
+        RegistroValido(int linha, TopicoImportadoForm form, Curso curso) {
+            this.linha = linha;
+            this.form = form;
+            this.curso = curso;
+        }
+    }
+}
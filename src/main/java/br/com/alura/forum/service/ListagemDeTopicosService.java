@@ -0,0 +1,78 @@
+package br.com.alura.forum.service;
+
+import br.com.alura.forum.config.cache.GeracoesDoCache;
+import br.com.alura.forum.config.cache.PaginacaoDaListagem;
+import br.com.alura.forum.config.datasource.RoteamentoDeLeituras;
+import br.com.alura.forum.controller.dto.TopicoDto;
+import br.com.alura.forum.modelo.Curso;
+import br.com.alura.forum.repository.TopicoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * A listagem paginada do GET /topicos, com o cache listaDeTopicos. Fica fora do controller para o controller
+ * poder responder 304 (ETag) antes de chegar no cache.
+ */
+@Service
+public class ListagemDeTopicosService {
+
+    @Autowired
+    private TopicoRepository topicoRepository;
+    @Autowired
+    private DicionarioDeCursos cursos;
+    @Autowired
+    private ContadorDeTopicosService contadorDeTopicos;
+    @Autowired
+    private GeracoesDoCache geracoes;
+    @Value("${forum.datasource.replicas.janela}")
+    private long janelaDaReplicacao;
+
+    //sync = true: leituras simultaneas da mesma pagina esperam uma unica consulta, e o Caffeine mede o tempo de carga
+    @Cacheable(value = "listaDeTopicos", keyGenerator = "chaveListaDeTopicos", sync = true,
+            condition = "T(br.com.alura.forum.config.cache.PaginacaoDaListagem).cacheavel(#paginacao)")
+    @Transactional(readOnly = true) // pode ir para uma replica (RoteamentoDeLeituras)
+    public Page<TopicoDto> listar(String nomeCurso, Pageable paginacao) {
+
+        //A pagina vai para o cache com a geracao atual. Logo depois de uma escrita no escopo (que avancou a geracao),
+        //uma replica atrasada ainda pode nao ter a escrita: nessa janela a pagina e lida do primario. Fora dela, e
+        //nas paginas que ja estao no cache, as leituras continuam nas replicas.
+        if (geracoes.avancouHaMenosDe(GeracoesDoCache.escopo(nomeCurso), janelaDaReplicacao)) {
+            return RoteamentoDeLeituras.noPrimario(() -> consultar(nomeCurso, paginacao));
+        }
+        return consultar(nomeCurso, paginacao);
+    }
+
+    private Page<TopicoDto> consultar(String nomeCurso, Pageable paginacao) {
+
+        paginacao = PaginacaoDaListagem.normalizar(paginacao); // a mesma paginacao usada na chave do cache
+
+        //O totalElements vem do ContadorDeTopicos em vez do SELECT COUNT(*). Se o contador ainda nao existe,
+        //volta para a consulta paginada normal, que faz o count.
+        //As consultas ja devolvem TopicoDto (projecao), sem carregar as entidades Topico.
+        if(nomeCurso==null){
+            Optional<Long> total = contadorDeTopicos.total(null);
+            return total.isPresent()
+                    ? new PageImpl<>(topicoRepository.listar(paginacao).getContent(), paginacao, total.get())
+                    : topicoRepository.listarComTotal(paginacao);
+        }else{
+            //o dicionario devolve o curso sem consulta, e o filtro vai direto no curso_id (indice do topico)
+            Optional<Curso> doCurso = cursos.buscar(nomeCurso);
+            if (doCurso.isEmpty()) {
+                return Page.empty(paginacao);
+            }
+            Curso curso = doCurso.get();
+            Optional<Long> total = contadorDeTopicos.total(curso);
+            return total.isPresent()
+                    ? new PageImpl<>(topicoRepository.listarPorCurso(curso.getId(), paginacao).getContent(), paginacao, total.get())
+                    : topicoRepository.listarPorCursoComTotal(curso.getId(), paginacao);
+        }
+    }
+}
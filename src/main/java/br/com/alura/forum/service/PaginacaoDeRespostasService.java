@@ -0,0 +1,40 @@
+package br.com.alura.forum.service;
+
+import br.com.alura.forum.config.cache.PaginacaoDaListagem;
+import br.com.alura.forum.controller.dto.PaginaPorCursorDto;
+import br.com.alura.forum.controller.dto.RespostaDto;
+import br.com.alura.forum.controller.paginacao.Cursor;
+import br.com.alura.forum.repository.RespostaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Uma página das respostas de um tópico, por cursor, da mais antiga para a mais nova. É usada pelo
+ * GET /topicos/{id} (a primeira página, junto com o tópico) e pelo GET /topicos/{id}/respostas (as seguintes).
+ */
+@Service
+public class PaginacaoDeRespostasService {
+
+    @Autowired
+    private RespostaRepository respostaRepository;
+
+    //Busca tamanho + 1 respostas para saber se existe próxima página, como na listagem de tópicos por cursor.
+    //Roda na transação de quem chama (as duas são somente leitura).
+    public PaginaPorCursorDto<RespostaDto> pagina(Long idTopico, String after, int tamanho) {
+        tamanho = Math.max(1, Math.min(tamanho, PaginacaoDaListagem.TAMANHO_MAXIMO));
+        PageRequest limite = PageRequest.of(0, tamanho + 1);
+        List<RespostaDto> respostas;
+        if (after.isEmpty()) {
+            respostas = respostaRepository.buscarPrimeiras(idTopico, limite);
+        } else {
+            Cursor cursor = Cursor.decodificar(after);
+            respostas = respostaRepository.buscarApos(idTopico, cursor.getDataCriacao(), cursor.getId(), limite);
+        }
+        return PaginaPorCursorDto.converter(respostas, tamanho, Function.identity(),
+                resposta -> new Cursor(resposta.getDataCriacao(), resposta.getId()));
+    }
+}
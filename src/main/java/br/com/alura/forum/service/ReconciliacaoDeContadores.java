@@ -0,0 +1,115 @@
+package br.com.alura.forum.service;
+
+import br.com.alura.forum.modelo.ContadorDeTopicos;
+import br.com.alura.forum.repository.ContadorDeTopicosRepository;
+import br.com.alura.forum.repository.TopicoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Compara os contadores com o COUNT(*) real e corrige qualquer diferença (por exemplo, tópicos
+ * inseridos direto no banco, como os do data.sql). Roda na subida da aplicação, o que também cria
+ * os contadores que ainda não existem, e depois periodicamente.
+ *
+ * A divergência encontrada vai para as métricas do actuator:
+ * forum.contadores.divergencia (soma das diferenças da última execução) e
+ * forum.contadores.correcoes (quantos contadores já foram corrigidos).
+ *
+ * Na mesma execução, a quantidadeDeRespostas e a ultimaAtividade de cada tópico são recalculadas a partir das
+ * respostas, em faixas de TOPICOS_POR_LOTE ids: um update por faixa, cada um na sua transação, para não travar
+ * a tabela inteira de uma vez. Os tópicos corrigidos são somados em forum.topicos.respostas.correcoes.
+ */
+@Component
+public class ReconciliacaoDeContadores {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconciliacaoDeContadores.class);
+    static final long TOPICOS_POR_LOTE = 1000;
+
+    private final ContadorDeTopicosRepository contadorRepository;
+    private final TopicoRepository topicoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicLong ultimaDivergencia = new AtomicLong();
+    private final Counter correcoes;
+    private final Counter correcoesDeRespostas;
+
+    public ReconciliacaoDeContadores(ContadorDeTopicosRepository contadorRepository, TopicoRepository topicoRepository,
+                                     PlatformTransactionManager transactionManager, MeterRegistry registry) {
+        this.contadorRepository = contadorRepository;
+        this.topicoRepository = topicoRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        registry.gauge("forum.contadores.divergencia", ultimaDivergencia);
+        this.correcoes = registry.counter("forum.contadores.correcoes");
+        this.correcoesDeRespostas = registry.counter("forum.topicos.respostas.correcoes");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void naSubida() {
+        reconciliar();
+    }
+
+    @Scheduled(fixedDelayString = "${forum.contadores.reconciliacao.intervalo}",
+            initialDelayString = "${forum.contadores.reconciliacao.intervalo}")
+    public void reconciliar() {
+        long divergencia = transactionTemplate.execute(status -> corrigir());
+        ultimaDivergencia.set(divergencia);
+        if (divergencia > 0) {
+            log.warn("Contadores de tópicos divergiam do banco em {} tópico(s) e foram corrigidos", divergencia);
+        }
+        reconciliarRespostas();
+    }
+
+    void reconciliarRespostas() {
+        Long maiorId = topicoRepository.maiorId();
+        long corrigidos = 0;
+        for (long de = 0; maiorId != null && de < maiorId; de += TOPICOS_POR_LOTE) {
+            long inicio = de;
+            corrigidos += transactionTemplate.execute(status -> topicoRepository.corrigirRespostas(inicio, inicio + TOPICOS_POR_LOTE));
+        }
+        if (corrigidos > 0) {
+            correcoesDeRespostas.increment(corrigidos);
+            log.warn("Quantidade de respostas/última atividade de {} tópico(s) divergia das respostas e foi corrigida", corrigidos);
+        }
+    }
+
+    private long corrigir() {
+        // trava primeiro os contadores: um cadastro em andamento espera a reconciliação terminar, e a contagem
+        // abaixo já enxerga tudo que foi commitado antes da trava
+        Map<String, ContadorDeTopicos> contadores = contadorRepository.travarTodos().stream()
+                .collect(Collectors.toMap(ContadorDeTopicos::getChave, Function.identity()));
+
+        Map<String, Long> reais = new HashMap<>();
+        reais.put(ContadorDeTopicos.GERAL, topicoRepository.count());
+        List<Object[]> porCurso = topicoRepository.contarPorCurso();
+        porCurso.forEach(linha -> reais.put(ContadorDeTopicos.chaveDoCurso((Long) linha[0]), (Long) linha[1]));
+        // cursos que ficaram sem tópicos não aparecem no group by
+        contadores.keySet().forEach(chave -> reais.putIfAbsent(chave, 0L));
+
+        long divergencia = 0;
+        for (Map.Entry<String, Long> real : reais.entrySet()) {
+            ContadorDeTopicos contador = contadores.get(real.getKey());
+            if (contador == null) {
+                contadorRepository.save(new ContadorDeTopicos(real.getKey(), real.getValue()));
+            } else if (!real.getValue().equals(contador.getTotal())) {
+                divergencia += Math.abs(real.getValue() - (contador.getTotal() == null ? 0 : contador.getTotal()));
+                contador.setTotal(real.getValue());
+                correcoes.increment();
+            }
+        }
+        return divergencia;
+    }
+}
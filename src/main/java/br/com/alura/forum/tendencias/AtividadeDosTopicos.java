@@ -0,0 +1,120 @@
+package br.com.alura.forum.tendencias;
+
+import br.com.alura.forum.evento.RespostaAlteradaEvento;
+import br.com.alura.forum.evento.TopicoAlteradoEvento;
+import br.com.alura.forum.evento.TopicoVisualizadoEvento;
+import br.com.alura.forum.evento.TopicosImportadosEvento;
+import br.com.alura.forum.repository.RespostaRepository;
+import br.com.alura.forum.repository.TopicoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.stream.Stream;
+
+/**
+ * Leva a atividade dos tópicos para o TopicosEmAlta: visualizações na hora, respostas e tópicos novos depois do commit.
+ *
+ * As pontuações só existem em memória. Na subida, elas são refeitas a partir das respostas e dos tópicos criados
+ * nas últimas JANELA_EM_MEIAS_VIDAS meias-vidas (o que é mais antigo que isso já não pesa quase nada). As
+ * visualizações não ficam gravadas com data, então só contam as que acontecerem depois da subida.
+ */
+@Component
+public class AtividadeDosTopicos {
+
+    private static final Logger log = LoggerFactory.getLogger(AtividadeDosTopicos.class);
+    static final int JANELA_EM_MEIAS_VIDAS = 8;
+
+    private final TopicosEmAlta emAlta;
+    private final TopicoRepository topicoRepository;
+    private final RespostaRepository respostaRepository;
+    private final TransactionTemplate transacaoDeLeitura;
+
+    @Value("${forum.trending.meia-vida}")
+    private long meiaVida;
+
+    @Value("${forum.trending.reconstrucao.na-subida:true}")
+    private boolean reconstruirNaSubida;
+
+    public AtividadeDosTopicos(TopicosEmAlta emAlta, TopicoRepository topicoRepository, RespostaRepository respostaRepository,
+                               PlatformTransactionManager transactionManager) {
+        this.emAlta = emAlta;
+        this.topicoRepository = topicoRepository;
+        this.respostaRepository = respostaRepository;
+        this.transacaoDeLeitura = new TransactionTemplate(transactionManager);
+        this.transacaoDeLeitura.setReadOnly(true);
+    }
+
+    @EventListener
+    public void topicoVisualizado(TopicoVisualizadoEvento evento) {
+        emAlta.registrar(evento.getIdTopico(), evento.getNomeCurso(), TopicosEmAlta.PESO_VISUALIZACAO, System.currentTimeMillis());
+    }
+
+    @TransactionalEventListener
+    public void respostaAlterada(RespostaAlteradaEvento evento) {
+        if (evento.getTipo() == RespostaAlteradaEvento.Tipo.CRIADA) {
+            emAlta.registrar(evento.getIdTopico(), evento.getNomeCurso(), TopicosEmAlta.PESO_RESPOSTA, emMilissegundos(evento.getQuando()));
+        }
+    }
+
+    @TransactionalEventListener
+    public void topicoAlterado(TopicoAlteradoEvento evento) {
+        if (evento.getTipo() == TopicoAlteradoEvento.Tipo.CRIADO) {
+            emAlta.registrar(evento.getIdTopico(), evento.getNomeCurso(), TopicosEmAlta.PESO_TOPICO_NOVO, System.currentTimeMillis());
+        } else if (evento.getTipo() == TopicoAlteradoEvento.Tipo.REMOVIDO) {
+            emAlta.remover(evento.getIdTopico(), evento.getNomeCurso());
+        }
+    }
+
+    @TransactionalEventListener
+    public void topicosImportados(TopicosImportadosEvento evento) {
+        evento.getTopicos().forEach(this::topicoAlterado);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void naSubida() {
+        if (!reconstruirNaSubida) {
+            return;
+        }
+        Thread reconstrucao = new Thread(this::reconstruir, "topicos-em-alta");
+        reconstrucao.setDaemon(true);
+        reconstrucao.start();
+    }
+
+    //Os eventos que chegarem durante a reconstrução somam normalmente: no pior caso, uma resposta lida aqui
+    //e também recebida pelo evento conta duas vezes, o que só adianta um pouco a subida do tópico.
+    void reconstruir() {
+        LocalDateTime desde = LocalDateTime.now().minusNanos(meiaVida * JANELA_EM_MEIAS_VIDAS * 1_000_000);
+        try {
+            long atividades = transacaoDeLeitura.execute(status -> {
+                long lidas = 0;
+                try (Stream<Object[]> topicos = topicoRepository.buscarCriadosDesde(desde)) {
+                    lidas += topicos.peek(topico -> emAlta.registrar((Long) topico[0], (String) topico[1],
+                            TopicosEmAlta.PESO_TOPICO_NOVO, emMilissegundos((LocalDateTime) topico[2]))).count();
+                }
+                try (Stream<Object[]> respostas = respostaRepository.buscarCriadasDesde(desde)) {
+                    lidas += respostas.peek(resposta -> emAlta.registrar((Long) resposta[0], (String) resposta[1],
+                            TopicosEmAlta.PESO_RESPOSTA, emMilissegundos((LocalDateTime) resposta[2]))).count();
+                }
+                return lidas;
+            });
+            emAlta.publicar();
+            log.info("Tópicos em alta refeitos com {} atividade(s) desde {}", atividades, desde);
+        } catch (RuntimeException e) {
+            log.error("Falha ao refazer os tópicos em alta; o ranking vai se formar com a atividade daqui em diante", e);
+        }
+    }
+
+    private static long emMilissegundos(LocalDateTime quando) {
+        return quando == null ? System.currentTimeMillis() : Timestamp.valueOf(quando).getTime();
+    }
+}
@@ -0,0 +1,66 @@
+package br.com.alura.forum.tendencias;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Pontuação dos tópicos de um escopo (um curso ou o geral), com no máximo "capacidade" tópicos.
+ *
+ * Quando está cheio e chega um tópico novo, ele entra no lugar do tópico de menor pontuação e herda essa
+ * pontuação (algoritmo Space-Saving): assim a memória é limitada, e um tópico que está recebendo muita atividade
+ * não fica de fora só porque o placar estava cheio. Não é thread-safe; quem usa sincroniza.
+ */
+class Placar {
+
+    private final int capacidade;
+    private final Map<Long, Double> pontos = new HashMap<>();
+
+    Placar(int capacidade) {
+        this.capacidade = capacidade;
+    }
+
+    void somar(Long idTopico, double peso) {
+        Double atual = pontos.get(idTopico);
+        if (atual != null) {
+            pontos.put(idTopico, atual + peso);
+            return;
+        }
+        if (pontos.size() < capacidade) {
+            pontos.put(idTopico, peso);
+            return;
+        }
+        Map.Entry<Long, Double> menor = null;
+        for (Map.Entry<Long, Double> ponto : pontos.entrySet()) {
+            if (menor == null || ponto.getValue() < menor.getValue()) {
+                menor = ponto;
+            }
+        }
+        pontos.remove(menor.getKey());
+        pontos.put(idTopico, menor.getValue() + peso);
+    }
+
+    void remover(Long idTopico) {
+        pontos.remove(idTopico);
+    }
+
+    void multiplicar(double fator) {
+        pontos.replaceAll((id, valor) -> valor * fator);
+    }
+
+    //os "quantidade" maiores, do maior para o menor
+    List<Map.Entry<Long, Double>> melhores(int quantidade) {
+        PriorityQueue<Map.Entry<Long, Double>> fila = new PriorityQueue<>(quantidade + 1, Map.Entry.comparingByValue());
+        for (Map.Entry<Long, Double> ponto : pontos.entrySet()) {
+            fila.add(Map.entry(ponto.getKey(), ponto.getValue()));
+            if (fila.size() > quantidade) {
+                fila.poll();
+            }
+        }
+        List<Map.Entry<Long, Double>> melhores = new ArrayList<>(fila);
+        melhores.sort(Map.Entry.<Long, Double>comparingByValue().reversed());
+        return melhores;
+    }
+}
@@ -0,0 +1,171 @@
+package br.com.alura.forum.tendencias;
+
+import br.com.alura.forum.config.cache.GeracoesDoCache;
+import br.com.alura.forum.controller.dto.TopicoDto;
+import br.com.alura.forum.controller.dto.TopicoEmAltaDto;
+import br.com.alura.forum.repository.TopicoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Tópicos em alta, por curso e no geral, calculados em memória a partir da atividade (visualizações, respostas
+ * e tópicos novos) em vez de uma consulta sobre as visualizações e respostas a cada requisição.
+ *
+ * Cada atividade soma um peso que perde metade do valor a cada meia-vida. Em vez de diminuir todas as pontuações
+ * com o tempo, o peso de uma atividade nova é que cresce: peso * 2^((agora - referencia) / meia-vida). A ordem
+ * dos tópicos fica a mesma e cada atividade só mexe em um tópico. Para o número não crescer sem limite, de tempos
+ * em tempos todas as pontuações são divididas pelo mesmo fator e a referência avança.
+ *
+ * As leituras não travam nada: o ranking de cada escopo é uma lista pronta e imutável, trocada inteira (volatile)
+ * a cada intervalo de publicação, já com os dados dos tópicos. Uma leitura só copia os primeiros da lista.
+ */
+@Component
+public class TopicosEmAlta {
+
+    static final double PESO_VISUALIZACAO = 1;
+    static final double PESO_RESPOSTA = 5;
+    static final double PESO_TOPICO_NOVO = 5;
+    // 2^40: a partir daqui as pontuações são reescaladas, bem longe de perder precisão no double
+    private static final double LIMITE_DO_EXPOENTE = 40;
+
+    private final TopicoRepository topicoRepository;
+    private final long meiaVida;
+    private final int tamanho;
+    private final int capacidade;
+
+    private final Map<String, Placar> placares = new ConcurrentHashMap<>();
+    //atividades (cada uma só trava o seu placar) usam a trava de leitura; a reescala precisa de todas paradas
+    private final ReadWriteLock reescala = new ReentrantReadWriteLock();
+    private volatile long referencia = System.currentTimeMillis();
+    private volatile Map<String, List<TopicoEmAltaDto>> ranking = Collections.emptyMap();
+    private final AtomicBoolean alterado = new AtomicBoolean();
+
+    public TopicosEmAlta(TopicoRepository topicoRepository,
+                         @Value("${forum.trending.meia-vida}") long meiaVida,
+                         @Value("${forum.trending.tamanho}") int tamanho,
+                         @Value("${forum.trending.capacidade}") int capacidade) {
+        this.topicoRepository = topicoRepository;
+        this.meiaVida = meiaVida;
+        this.tamanho = tamanho;
+        this.capacidade = Math.max(capacidade, tamanho);
+    }
+
+    public void registrar(Long idTopico, String nomeCurso, double peso, long quando) {
+        reescala.readLock().lock();
+        try {
+            double valor = peso * Math.pow(2, (double) (quando - referencia) / meiaVida);
+            somar(GeracoesDoCache.GERAL, idTopico, valor);
+            if (nomeCurso != null) {
+                somar(GeracoesDoCache.escopo(nomeCurso), idTopico, valor);
+            }
+            alterado.set(true);
+        } finally {
+            reescala.readLock().unlock();
+        }
+    }
+
+    public void remover(Long idTopico, String nomeCurso) {
+        Placar geral = placares.get(GeracoesDoCache.GERAL);
+        if (geral != null) {
+            synchronized (geral) {
+                geral.remover(idTopico);
+            }
+        }
+        Placar doCurso = nomeCurso == null ? null : placares.get(GeracoesDoCache.escopo(nomeCurso));
+        if (doCurso != null) {
+            synchronized (doCurso) {
+                doCurso.remover(idTopico);
+            }
+        }
+        alterado.set(true);
+    }
+
+    //Leitura: O(tamanho), sem trava e sem consulta ao banco
+    public List<TopicoEmAltaDto> buscar(String nomeCurso, int quantidade) {
+        List<TopicoEmAltaDto> doEscopo = ranking.getOrDefault(GeracoesDoCache.escopo(nomeCurso), Collections.emptyList());
+        return doEscopo.subList(0, Math.max(0, Math.min(quantidade, doEscopo.size())));
+    }
+
+    public int tamanho() {
+        return tamanho;
+    }
+
+    //Monta o ranking de todos os escopos e troca o publicado de uma vez. Os dados dos tópicos vêm numa única
+    //consulta pelos ids de todos os rankings. Sem atividade nova a ordem não muda, então não há o que publicar.
+    @Scheduled(fixedDelayString = "${forum.trending.publicacao.intervalo}")
+    public void publicar() {
+        reescalarSeNecessario();
+        if (!alterado.getAndSet(false)) {
+            return;
+        }
+        long agora = System.currentTimeMillis();
+        double fatorAtual = Math.pow(2, (double) (agora - referencia) / meiaVida);
+
+        Map<String, List<Map.Entry<Long, Double>>> melhoresPorEscopo = new HashMap<>();
+        Set<Long> ids = new HashSet<>();
+        placares.forEach((escopo, placar) -> {
+            List<Map.Entry<Long, Double>> melhores;
+            synchronized (placar) {
+                melhores = placar.melhores(tamanho);
+            }
+            melhoresPorEscopo.put(escopo, melhores);
+            melhores.forEach(ponto -> ids.add(ponto.getKey()));
+        });
+        Map<Long, TopicoDto> topicos = ids.isEmpty() ? Collections.emptyMap() : topicoRepository.buscarPorIds(ids).stream()
+                .collect(Collectors.toMap(TopicoDto::getId, Function.identity()));
+
+        Map<String, List<TopicoEmAltaDto>> novoRanking = new HashMap<>();
+        melhoresPorEscopo.forEach((escopo, melhores) -> {
+            List<TopicoEmAltaDto> lista = new ArrayList<>(melhores.size());
+            for (Map.Entry<Long, Double> ponto : melhores) {
+                TopicoDto topico = topicos.get(ponto.getKey());
+                if (topico != null) { // removido depois da última atividade
+                    lista.add(new TopicoEmAltaDto(topico, ponto.getValue() / fatorAtual));
+                }
+            }
+            novoRanking.put(escopo, Collections.unmodifiableList(lista));
+        });
+        ranking = Collections.unmodifiableMap(novoRanking);
+    }
+
+    private void somar(String escopo, Long idTopico, double valor) {
+        Placar placar = placares.computeIfAbsent(escopo, e -> new Placar(capacidade));
+        synchronized (placar) {
+            placar.somar(idTopico, valor);
+        }
+    }
+
+    private void reescalarSeNecessario() {
+        long agora = System.currentTimeMillis();
+        if ((double) (agora - referencia) / meiaVida < LIMITE_DO_EXPOENTE) {
+            return;
+        }
+        reescala.writeLock().lock();
+        try {
+            double fator = Math.pow(2, -(double) (agora - referencia) / meiaVida);
+            placares.values().forEach(placar -> {
+                synchronized (placar) {
+                    placar.multiplicar(fator);
+                }
+            });
+            referencia = agora;
+        } finally {
+            reescala.writeLock().unlock();
+        }
+    }
+}
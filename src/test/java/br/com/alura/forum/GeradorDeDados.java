@@ -0,0 +1,314 @@
+package br.com.alura.forum;
+
+import lombok.Data;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Gera uma massa de dados grande e com a distribuição de um fórum de verdade, para os testes e para os benchmarks
+ * (o TesteDeCarga usa esta classe): cursos, usuários, tópicos e respostas.
+ *
+ * A distribuição é a de Zipf: poucos cursos concentram a maior parte dos tópicos, poucos usuários escrevem a maior
+ * parte das mensagens e poucos tópicos concentram a maior parte das respostas (com milhares delas), enquanto a
+ * maioria fica na cauda longa, com nenhuma ou quase nenhuma. Com a mesma semente, a massa gerada é sempre a mesma.
+ *
+ * A gravação vai direto pelo JDBC, em lotes (addBatch), com os ids já definidos aqui, a partir do maior id que existir
+ * em cada tabela: as respostas apontam para os tópicos sem ler nada de volta do banco. No MySQL, use
+ * rewriteBatchedStatements=true na URL, para cada lote ir como um único insert. Depois de gerar, quem usa a aplicação
+ * precisa refazer os contadores (ReconciliacaoDeContadores) e recarregar o DicionarioDeCursos.
+ *
+ * Todos os usuários têm a mesma senha (o hash é recebido pronto, para o BCrypt não rodar uma vez por usuário).
+ */
+public class GeradorDeDados {
+
+    static final int TAMANHO_DO_LOTE = 1000;
+
+    // expoente da distribuição de Zipf: quanto maior, mais concentrado nos primeiros
+    private static final double CONCENTRACAO = 1.1;
+    private static final LocalDateTime INICIO = LocalDateTime.of(2019, 1, 1, 0, 0);
+    private static final long PERIODO_EM_SEGUNDOS = 2L * 365 * 24 * 60 * 60;
+    // o tamanho padrão das colunas String da JPA (varchar(255))
+    private static final int TAMANHO_MAXIMO_DO_TEXTO = 255;
+    private static final String[] PALAVRAS = {"erro", "projeto", "Spring", "classe", "método", "banco", "consulta",
+            "compilar", "executar", "configuração", "dependência", "teste", "exceção", "anotação", "controller", "token",
+            "JSON", "requisição", "resposta", "servidor", "porta", "maven", "versão", "entidade", "repositório",
+            "transação", "não", "funciona", "quando", "depois", "de", "o", "a", "com", "sem", "no", "na", "para", "que"};
+
+    private final DataSource dataSource;
+    private final Random aleatorio;
+
+    public GeradorDeDados(DataSource dataSource, long semente) {
+        this.dataSource = dataSource;
+        this.aleatorio = new Random(semente);
+    }
+
+    public DadosGerados gerar(int cursos, int usuarios, int topicos, long respostas, String senhaCriptografada) throws SQLException {
+        try (Connection conexao = dataSource.getConnection()) {
+            boolean autoCommit = conexao.getAutoCommit();
+            conexao.setAutoCommit(false);
+            try {
+                DadosGerados dados = new DadosGerados(maiorId(conexao, "Curso") + 1, cursos, maiorId(conexao, "Usuario") + 1,
+                        usuarios, maiorId(conexao, "Topico") + 1, topicos);
+                inserirCursos(conexao, dados);
+                inserirUsuarios(conexao, dados, senhaCriptografada);
+                long primeiraResposta = maiorId(conexao, "Resposta") + 1;
+                inserirTopicosERespostas(conexao, dados, respostas, primeiraResposta);
+                reiniciarIds(conexao, dados, primeiraResposta + respostas);
+                conexao.commit();
+                return dados;
+            } finally {
+                conexao.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private void inserirCursos(Connection conexao, DadosGerados dados) throws SQLException {
+        try (PreparedStatement insert = conexao.prepareStatement("insert into Curso (id, nome, categoria) values (?, ?, ?)")) {
+            for (int i = 0; i < dados.getCursos(); i++) {
+                insert.setLong(1, dados.getPrimeiroCurso() + i);
+                insert.setString(2, dados.nomeDoCurso(i));
+                insert.setString(3, "Categoria " + (i % 10 + 1));
+                adicionar(conexao, insert, i);
+            }
+            gravar(conexao, insert);
+        }
+    }
+
+    private void inserirUsuarios(Connection conexao, DadosGerados dados, String senhaCriptografada) throws SQLException {
+        try (PreparedStatement insert = conexao.prepareStatement("insert into Usuario (id, nome, email, senha) values (?, ?, ?, ?)")) {
+            for (int i = 0; i < dados.getUsuarios(); i++) {
+                insert.setLong(1, dados.getPrimeiroUsuario() + i);
+                insert.setString(2, "Aluno " + (i + 1));
+                insert.setString(3, dados.emailDoUsuario(i));
+                insert.setString(4, senhaCriptografada);
+                adicionar(conexao, insert, i);
+            }
+            gravar(conexao, insert);
+        }
+    }
+
+    //Primeiro sorteia quantas respostas cada tópico vai ter, para o tópico já ser gravado com quantidadeDeRespostas e
+    //ultimaAtividade certos; depois grava os tópicos e, tópico por tópico, as suas respostas.
+    private void inserirTopicosERespostas(Connection conexao, DadosGerados dados, long respostas, long primeiraResposta)
+            throws SQLException {
+        int topicos = dados.getTopicos();
+        Zipf porTopico = new Zipf(topicos, CONCENTRACAO, aleatorio);
+        Zipf porCurso = new Zipf(dados.getCursos(), CONCENTRACAO, aleatorio);
+        Zipf porUsuario = new Zipf(dados.getUsuarios(), CONCENTRACAO, aleatorio);
+
+        int[] respostasPorTopico = new int[topicos];
+        for (long i = 0; i < respostas; i++) {
+            respostasPorTopico[porTopico.sortear(aleatorio)]++;
+        }
+        int maisRespondido = 0;
+        for (int i = 1; i < topicos; i++) {
+            if (respostasPorTopico[i] > respostasPorTopico[maisRespondido]) {
+                maisRespondido = i;
+            }
+        }
+        dados.setTopicoMaisRespondido(dados.getPrimeiroTopico() + maisRespondido);
+        dados.setRespostas(respostas);
+
+        // as datas das respostas de cada tópico saem da mesma semente, então podem ser refeitas na hora de gravá-las
+        long sementeDasDatas = aleatorio.nextLong();
+        BitSet solucionados = new BitSet(topicos);
+        try (PreparedStatement insert = conexao.prepareStatement("insert into Topico (id, titulo, mensagem, dataCriacao, " +
+                "status, autor_id, curso_id, quantidadeDeRespostas, ultimaAtividade) values (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            Random datas = new Random(sementeDasDatas);
+            for (int i = 0; i < topicos; i++) {
+                LocalDateTime criacao = dataDoTopico(i, topicos);
+                LocalDateTime ultimaAtividade = criacao;
+                for (int r = 0; r < respostasPorTopico[i]; r++) {
+                    ultimaAtividade = proximaResposta(ultimaAtividade, datas);
+                }
+                String status = "NAO_RESPONDIDO";
+                if (respostasPorTopico[i] > 0) {
+                    boolean solucionado = aleatorio.nextInt(10) < 3;
+                    solucionados.set(i, solucionado);
+                    status = solucionado ? "SOLUCIONADO" : "NAO_SOLUCIONADO";
+                }
+                insert.setLong(1, dados.getPrimeiroTopico() + i);
+                insert.setString(2, "Dúvida " + (i + 1) + ": " + texto(3, 8));
+                insert.setString(3, texto(10, 40));
+                insert.setTimestamp(4, Timestamp.valueOf(criacao));
+                insert.setString(5, status);
+                insert.setLong(6, dados.getPrimeiroUsuario() + porUsuario.sortear(aleatorio));
+                insert.setLong(7, dados.getPrimeiroCurso() + porCurso.sortear(aleatorio));
+                insert.setInt(8, respostasPorTopico[i]);
+                insert.setTimestamp(9, Timestamp.valueOf(ultimaAtividade));
+                adicionar(conexao, insert, i);
+            }
+            gravar(conexao, insert);
+        }
+
+        try (PreparedStatement insert = conexao.prepareStatement("insert into Resposta (id, mensagem, topico_id, dataCriacao, " +
+                "autor_id, solucao) values (?, ?, ?, ?, ?, ?)")) {
+            Random datas = new Random(sementeDasDatas);
+            long id = primeiraResposta;
+            for (int i = 0; i < topicos; i++) {
+                LocalDateTime quando = dataDoTopico(i, topicos);
+                for (int r = 0; r < respostasPorTopico[i]; r++) {
+                    quando = proximaResposta(quando, datas);
+                    insert.setLong(1, id);
+                    insert.setString(2, texto(5, 40));
+                    insert.setLong(3, dados.getPrimeiroTopico() + i);
+                    insert.setTimestamp(4, Timestamp.valueOf(quando));
+                    insert.setLong(5, dados.getPrimeiroUsuario() + porUsuario.sortear(aleatorio));
+                    insert.setBoolean(6, solucionados.get(i) && r == respostasPorTopico[i] - 1); // a última resolveu
+                    adicionar(conexao, insert, id - primeiraResposta);
+                    id++;
+                }
+            }
+            gravar(conexao, insert);
+        }
+    }
+
+    // os tópicos ficam espalhados pelo período, em ordem de id, como num fórum que recebe tópicos todo dia
+    private static LocalDateTime dataDoTopico(int indice, int topicos) {
+        return INICIO.plusSeconds(PERIODO_EM_SEGUNDOS * indice / topicos);
+    }
+
+    private static LocalDateTime proximaResposta(LocalDateTime anterior, Random datas) {
+        return anterior.plusSeconds(1 + datas.nextInt(6 * 60 * 60));
+    }
+
+    private String texto(int minimo, int maximo) {
+        int palavras = minimo + aleatorio.nextInt(maximo - minimo + 1);
+        StringBuilder texto = new StringBuilder(palavras * 8);
+        for (int i = 0; i < palavras; i++) {
+            String palavra = PALAVRAS[aleatorio.nextInt(PALAVRAS.length)];
+            if (texto.length() + palavra.length() + 1 > TAMANHO_MAXIMO_DO_TEXTO) {
+                break;
+            }
+            if (i > 0) {
+                texto.append(' ');
+            }
+            texto.append(palavra);
+        }
+        return texto.toString();
+    }
+
+    private static void adicionar(Connection conexao, PreparedStatement insert, long linha) throws SQLException {
+        insert.addBatch();
+        if ((linha + 1) % TAMANHO_DO_LOTE == 0) {
+            gravar(conexao, insert);
+        }
+    }
+
+    // cada lote é confirmado na hora, para a transação (e o undo do banco) não crescer com a massa inteira
+    private static void gravar(Connection conexao, PreparedStatement insert) throws SQLException {
+        insert.executeBatch();
+        conexao.commit();
+    }
+
+    private static long maiorId(Connection conexao, String tabela) throws SQLException {
+        try (Statement select = conexao.createStatement();
+             ResultSet resultado = select.executeQuery("select coalesce(max(id), 0) from " + tabela)) {
+            resultado.next();
+            return resultado.getLong(1);
+        }
+    }
+
+    //Com os ids informados no insert, o auto incremento do H2 não anda sozinho: o próximo cadastro pela aplicação
+    //tentaria um id que já existe. O MySQL ajusta o auto_increment sozinho, mas o comando não faz mal.
+    private static void reiniciarIds(Connection conexao, DadosGerados dados, long proximaResposta) throws SQLException {
+        String banco = conexao.getMetaData().getDatabaseProductName();
+        List<String> comandos = new ArrayList<>();
+        long[] proximos = {dados.getPrimeiroCurso() + dados.getCursos(), dados.getPrimeiroUsuario() + dados.getUsuarios(),
+                dados.getPrimeiroTopico() + dados.getTopicos(), proximaResposta};
+        List<String> tabelas = Arrays.asList("Curso", "Usuario", "Topico", "Resposta");
+        for (int i = 0; i < tabelas.size(); i++) {
+            if (banco.equals("H2")) {
+                comandos.add("alter table " + tabelas.get(i) + " alter column id restart with " + proximos[i]);
+            } else if (banco.equals("MySQL")) {
+                comandos.add("alter table " + tabelas.get(i) + " auto_increment = " + proximos[i]);
+            }
+        }
+        try (Statement alter = conexao.createStatement()) {
+            for (String comando : comandos) {
+                alter.execute(comando);
+            }
+        }
+    }
+
+    /**
+     * O que foi gerado. Os ids de cada tabela são contínuos: do primeiro até primeiro + quantidade - 1.
+     */
+    @Data
+    public static class DadosGerados {
+
+        private final long primeiroCurso;
+        private final int cursos;
+        private final long primeiroUsuario;
+        private final int usuarios;
+        private final long primeiroTopico;
+        private final int topicos;
+        private long respostas;
+        private long topicoMaisRespondido;
+
+        public String nomeDoCurso(int indice) {
+            return "Curso " + (primeiroCurso + indice);
+        }
+
+        public String emailDoUsuario(int indice) {
+            return "aluno" + (primeiroUsuario + indice) + "@email.com";
+        }
+
+        public List<String> nomesDosCursos() {
+            List<String> nomes = new ArrayList<>(cursos);
+            for (int i = 0; i < cursos; i++) {
+                nomes.add(nomeDoCurso(i));
+            }
+            return nomes;
+        }
+    }
+
+    //Sorteio pela distribuição de Zipf: o k-ésimo mais popular sai com probabilidade proporcional a 1 / k^expoente.
+    //Os mais populares não são os primeiros ids: a ordem é embaralhada, senão todos os tópicos quentes seriam os
+    //mais antigos.
+    private static class Zipf {
+
+        private final double[] acumulada;
+        private final int[] posicoes;
+
+        Zipf(int quantidade, double expoente, Random aleatorio) {
+            acumulada = new double[quantidade];
+            double soma = 0;
+            for (int k = 0; k < quantidade; k++) {
+                soma += 1 / Math.pow(k + 1, expoente);
+                acumulada[k] = soma;
+            }
+            posicoes = new int[quantidade];
+            for (int i = 0; i < quantidade; i++) {
+                posicoes[i] = i;
+            }
+            for (int i = quantidade - 1; i > 0; i--) {
+                int j = aleatorio.nextInt(i + 1);
+                int troca = posicoes[i];
+                posicoes[i] = posicoes[j];
+                posicoes[j] = troca;
+            }
+        }
+
+        int sortear(Random aleatorio) {
+            double alvo = aleatorio.nextDouble() * acumulada[acumulada.length - 1];
+            int posicao = Arrays.binarySearch(acumulada, alvo);
+            if (posicao < 0) {
+                posicao = -posicao - 1;
+            }
+            return posicoes[Math.min(posicao, posicoes.length - 1)];
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package br.com.alura.forum;
+
+import br.com.alura.forum.modelo.Curso;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class GeradorDeDadosTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void geraAsRespostasConcentradasEmPoucosTopicos() throws Exception {
+        GeradorDeDados.DadosGerados dados = new GeradorDeDados(dataSource, 42).gerar(5, 50, 500, 5000, "senha");
+
+        long topicoMaisRespondido = dados.getTopicoMaisRespondido();
+        Integer respostasDoMaisRespondido = jdbc.queryForObject("select count(*) from Resposta where topico_id = ?",
+                Integer.class, topicoMaisRespondido);
+        // média de 10 respostas por tópico; o mais respondido passa de 100
+        assertThat(respostasDoMaisRespondido).isGreaterThan(100);
+        assertThat(jdbc.queryForObject("select quantidadeDeRespostas from Topico where id = ?", Integer.class, topicoMaisRespondido))
+                .isEqualTo(respostasDoMaisRespondido);
+        assertThat(jdbc.queryForObject("select sum(quantidadeDeRespostas) from Topico where id >= ?", Long.class,
+                dados.getPrimeiroTopico())).isEqualTo(5000L);
+
+        // o detalhe do tópico mais respondido continua no orçamento de consultas
+        new OrcamentoDeConsultas(entityManagerFactory).verificar("GET /topicos/" + topicoMaisRespondido, 3, () ->
+                mvc.perform(get("/topicos/{id}", topicoMaisRespondido))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.totalDeRespostas").value(respostasDoMaisRespondido)));
+    }
+
+    @Test
+    void cadastrosDepoisDaGeracaoNaoRepetemOsIds() throws Exception {
+        GeradorDeDados.DadosGerados dados = new GeradorDeDados(dataSource, 7).gerar(3, 10, 20, 50, "senha");
+
+        Long id = new TransactionTemplate(transactionManager).execute(status -> {
+            Curso curso = new Curso();
+            curso.setNome("Curso cadastrado");
+            em.persist(curso);
+            return curso.getId();
+        });
+        assertThat(id).isGreaterThanOrEqualTo(dados.getPrimeiroCurso() + dados.getCursos());
+    }
+}
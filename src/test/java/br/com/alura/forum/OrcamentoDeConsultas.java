@@ -0,0 +1,45 @@
+package br.com.alura.forum;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+
+/**
+ * Orçamento de consultas para os testes: executa uma ação (normalmente uma requisição pelo MockMvc) e falha se ela
+ * preparar mais comandos SQL do que o declarado. Uma mudança que volte a fazer N+1 num endpoint quebra o teste,
+ * com as consultas feitas na mensagem.
+ *
+ * Usa as estatísticas do Hibernate (hibernate.generate_statistics=true no profile de teste), então só conta o que
+ * passa pelo Hibernate, e a ação não pode rodar junto com outras que usem o banco.
+ */
+public class OrcamentoDeConsultas {
+
+    private final Statistics estatisticas;
+
+    public OrcamentoDeConsultas(EntityManagerFactory entityManagerFactory) {
+        this.estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public long medir(Acao acao) throws Exception {
+        estatisticas.clear();
+        acao.executar();
+        return estatisticas.getPrepareStatementCount();
+    }
+
+    public long verificar(String descricao, long maximo, Acao acao) throws Exception {
+        long consultas = medir(acao);
+        if (consultas > maximo) {
+            throw new AssertionError(String.format("%s fez %d consulta(s), o orçamento é de %d. Consultas JPQL: %s",
+                    descricao, consultas, maximo, Arrays.toString(estatisticas.getQueries())));
+        }
+        return consultas;
+    }
+
+    @FunctionalInterface
+    public interface Acao {
+
+        void executar() throws Exception;
+    }
+}
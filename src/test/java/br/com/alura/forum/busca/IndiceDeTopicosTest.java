@@ -0,0 +1,51 @@
+package br.com.alura.forum.busca;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndiceDeTopicosTest {
+
+    private IndiceDeTopicos indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceDeTopicos(new SimpleMeterRegistry());
+        indice.indexar(1L, "Dúvida", "Erro ao criar projeto");
+        indice.indexar(2L, "Dúvida 2", "Projeto não compila");
+        indice.indexar(3L, "Compilação do projeto", "O projeto não compila depois da atualização");
+    }
+
+    @Test
+    void ignoraAcentosEMaiusculas() {
+        assertThat(indice.buscar("DUVIDA", 10)).extracting(IndiceDeTopicos.TopicoEncontrado::getId)
+                .containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void topicoQueMaisRepeteOTermoVemPrimeiro() {
+        assertThat(indice.buscar("projeto", 10)).extracting(IndiceDeTopicos.TopicoEncontrado::getId)
+                .containsExactly(3L, 2L, 1L);
+    }
+
+    @Test
+    void alteracaoERemocaoSaoRefletidasNaBusca() {
+        indice.indexar(1L, "Dúvida", "Servidor não sobe");
+        indice.remover(2L);
+
+        assertThat(indice.buscar("projeto", 10)).extracting(IndiceDeTopicos.TopicoEncontrado::getId).containsExactly(3L);
+        assertThat(indice.buscar("servidor", 10)).extracting(IndiceDeTopicos.TopicoEncontrado::getId).containsExactly(1L);
+    }
+
+    @Test
+    void reconstrucaoNaoSobrescreveTopicoAlteradoDuranteALeitura() {
+        indice.iniciarReconstrucao();
+        indice.remover(2L);
+        indice.indexarDaReconstrucao(2L, "Dúvida 2", "Projeto não compila");
+        indice.terminarReconstrucao();
+
+        assertThat(indice.buscar("compila", 10)).extracting(IndiceDeTopicos.TopicoEncontrado::getId).containsExactly(3L);
+    }
+}
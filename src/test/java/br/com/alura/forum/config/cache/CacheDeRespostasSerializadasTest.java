@@ -0,0 +1,124 @@
+package br.com.alura.forum.config.cache;
+
+import br.com.alura.forum.evento.RespostaAlteradaEvento;
+import br.com.alura.forum.evento.TopicoAlteradoEvento;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheDeRespostasSerializadasTest {
+
+    private GeracoesDoCache geracoes;
+    private ChaveListaDeTopicosGenerator chaves;
+    private CacheDeRespostasSerializadas cache;
+
+    @BeforeEach
+    void setUp() {
+        geracoes = new GeracoesDoCache();
+        chaves = new ChaveListaDeTopicosGenerator(geracoes);
+        cache = new CacheDeRespostasSerializadas(new ObjectMapper(), new SimpleMeterRegistry(), true, 1 << 20, 60000);
+    }
+
+    @Test
+    void respostaGrandeVaiCompactadaSoParaQuemAceitaGzip() throws IOException {
+        String mensagem = "Erro ao criar o projeto ".repeat(100);
+        RespostaSerializada resposta = cache.serializar(Map.of("mensagem", mensagem), "\"t-1-0\"", null);
+
+        ResponseEntity<byte[]> semGzip = CacheDeRespostasSerializadas.responder(resposta, requisicao(null));
+        ResponseEntity<byte[]> comGzip = CacheDeRespostasSerializadas.responder(resposta, requisicao("gzip, deflate"));
+
+        assertThat(semGzip.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(comGzip.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(comGzip.getBody().length).isLessThan(semGzip.getBody().length);
+        assertThat(descompactar(comGzip.getBody())).isEqualTo(new String(semGzip.getBody(), StandardCharsets.UTF_8));
+        // representações diferentes, ETags diferentes
+        assertThat(semGzip.getHeaders().getETag()).isEqualTo("\"t-1-0\"");
+        assertThat(comGzip.getHeaders().getETag()).isEqualTo("\"t-1-0-gz\"");
+    }
+
+    @Test
+    void ifNoneMatchValeParaOEtagDoJsonEParaODoGzip() {
+        assertThat(CacheDeRespostasSerializadas.naoModificado(requisicaoCondicional("\"t-1-0\""), "\"t-1-0\"")).isTrue();
+        assertThat(CacheDeRespostasSerializadas.naoModificado(requisicaoCondicional("\"t-1-0-gz\""), "\"t-1-0\"")).isTrue();
+        assertThat(CacheDeRespostasSerializadas.naoModificado(requisicaoCondicional("\"t-1-1-gz\""), "\"t-1-0\"")).isFalse();
+        assertThat(CacheDeRespostasSerializadas.naoModificado(requisicaoCondicional("\"t-1-1\""), "\"t-1-0\"")).isFalse();
+    }
+
+    @Test
+    void gzipComQZeroNaoEAceito() {
+        assertThat(CacheDeRespostasSerializadas.aceitaGzip("gzip;q=0, identity")).isFalse();
+        assertThat(CacheDeRespostasSerializadas.aceitaGzip("br, GZIP;q=0.8")).isTrue();
+        assertThat(CacheDeRespostasSerializadas.aceitaGzip("deflate")).isFalse();
+    }
+
+    @Test
+    void respostaNovaDoTopicoInvalidaODetalheMasNaoOsOutrosTopicos() {
+        CacheDeRespostasSerializadas.ChaveDoDetalhe chaveDoTopico = cache.chaveDoTopico(1L);
+        CacheDeRespostasSerializadas.ChaveDoDetalhe chaveDeOutro = cache.chaveDoTopico(2L);
+        cache.guardar(chaveDoTopico, "detalhe 1", "\"t-1-0\"", "Spring Boot");
+        cache.guardar(chaveDeOutro, "detalhe 2", "\"t-2-0\"", "Spring Boot");
+
+        cache.respostaAlterada(new RespostaAlteradaEvento(RespostaAlteradaEvento.Tipo.CRIADA, 1L, "Spring Boot", LocalDateTime.now()));
+
+        assertThat(cache.buscar(cache.chaveDoTopico(1L))).isNull();
+        assertThat(cache.buscar(cache.chaveDoTopico(2L))).isNotNull();
+    }
+
+    @Test
+    void detalheMontadoAntesDoCommitNaoFicaVisivelDepoisDele() {
+        // a leitura pega a chave e consulta o banco antes do commit, mas só grava no cache depois dele
+        CacheDeRespostasSerializadas.ChaveDoDetalhe chaveDaLeitura = cache.chaveDoTopico(1L);
+        cache.topicoAlterado(new TopicoAlteradoEvento(TopicoAlteradoEvento.Tipo.ATUALIZADO, 1L, "Spring Boot", "Dúvida", "Mensagem"));
+        cache.guardar(chaveDaLeitura, "detalhe lido antes do commit", "\"t-1-0\"", "Spring Boot");
+
+        assertThat(cache.buscar(cache.chaveDoTopico(1L))).isNull();
+    }
+
+    @Test
+    void paginaDeOutroCursoContinuaNoCache() {
+        cache.guardar(chaves.chave("Spring Boot", PageRequest.of(0, 10)), "spring", "\"l\"", null);
+        cache.guardar(chaves.chave("HTML 5", PageRequest.of(0, 10)), "html", "\"l\"", null);
+
+        // quem avança a geração do curso é o InvalidacaoDoCacheDeTopicos; a página antiga fica até o Caffeine descartá-la
+        geracoes.avancar(GeracoesDoCache.escopo("Spring Boot"));
+
+        assertThat(cache.buscar(chaves.chave("Spring Boot", PageRequest.of(0, 10)))).isNull();
+        assertThat(cache.buscar(chaves.chave("HTML 5", PageRequest.of(0, 10)))).isNotNull();
+    }
+
+    private static ServletWebRequest requisicao(String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/topicos/1");
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return new ServletWebRequest(request);
+    }
+
+    private static ServletWebRequest requisicaoCondicional(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/topicos/1");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+
+    private static String descompactar(byte[] gzip) throws IOException {
+        try (GZIPInputStream entrada = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
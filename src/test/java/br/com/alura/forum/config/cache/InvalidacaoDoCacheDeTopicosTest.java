@@ -0,0 +1,96 @@
+package br.com.alura.forum.config.cache;
+
+import br.com.alura.forum.evento.TopicoAlteradoEvento;
+import br.com.alura.forum.evento.TopicosImportadosEvento;
+import br.com.alura.forum.modelo.Curso;
+import br.com.alura.forum.modelo.Topico;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvalidacaoDoCacheDeTopicosTest {
+
+    private static final Pageable PRIMEIRA_PAGINA = PageRequest.of(0, 10);
+
+    private GeracoesDoCache geracoes;
+    private ChaveListaDeTopicosGenerator chaves;
+    private InvalidacaoDoCacheDeTopicos invalidacao;
+    private Cache cache;
+
+    @BeforeEach
+    void setUp() {
+        geracoes = new GeracoesDoCache();
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(InvalidacaoDoCacheDeTopicos.LISTA_DE_TOPICOS);
+        chaves = new ChaveListaDeTopicosGenerator(geracoes);
+        invalidacao = new InvalidacaoDoCacheDeTopicos(geracoes);
+        cache = cacheManager.getCache(InvalidacaoDoCacheDeTopicos.LISTA_DE_TOPICOS);
+    }
+
+    // as páginas antigas continuam no cache (o Caffeine as descarta pelo tamanho e pela expiração), mas a chave
+    // da geração nova não as encontra
+    @Test
+    void novoTopicoInvalidaAListagemDoCursoEAGeralMasNaoADosOutrosCursos() {
+        ChaveDaListagem antigaDoCurso = chaves.chave("Spring Boot", PRIMEIRA_PAGINA);
+        cache.put(antigaDoCurso, "spring antiga");
+        cache.put(chaves.chave("HTML 5", PRIMEIRA_PAGINA), "html");
+        cache.put(chaves.chave(null, PRIMEIRA_PAGINA), "geral antiga");
+
+        invalidacao.topicoAlterado(evento(TopicoAlteradoEvento.Tipo.CRIADO, "Spring Boot"));
+
+        assertThat(cache.get(chaves.chave("Spring Boot", PRIMEIRA_PAGINA))).isNull();
+        assertThat(cache.get(chaves.chave(null, PRIMEIRA_PAGINA))).isNull();
+        assertThat(cache.get(chaves.chave("HTML 5", PRIMEIRA_PAGINA)).get()).isEqualTo("html");
+        assertThat(cache.get(antigaDoCurso).get()).isEqualTo("spring antiga");
+    }
+
+    @Test
+    void todasAsPaginasDoCursoAlteradoSaoInvalidadas() {
+        Pageable segundaPagina = PageRequest.of(1, 10);
+        cache.put(chaves.chave("Spring Boot", segundaPagina), "segunda pagina antiga");
+
+        invalidacao.topicoAlterado(evento(TopicoAlteradoEvento.Tipo.REMOVIDO, "Spring Boot"));
+
+        assertThat(cache.get(chaves.chave("Spring Boot", segundaPagina))).isNull();
+    }
+
+    @Test
+    void leituraIniciadaAntesDoCommitNaoFicaVisivelDepoisDele() {
+        // a leitura calcula a chave e consulta o banco antes do commit, mas só grava no cache depois dele
+        ChaveDaListagem chaveDaLeitura = chaves.chave("Spring Boot", PRIMEIRA_PAGINA);
+        invalidacao.topicoAlterado(evento(TopicoAlteradoEvento.Tipo.ATUALIZADO, "Spring Boot"));
+        cache.put(chaveDaLeitura, "pagina lida antes do commit");
+
+        assertThat(cache.get(chaves.chave("Spring Boot", PRIMEIRA_PAGINA))).isNull();
+    }
+
+    @Test
+    void loteImportadoAvancaCadaCursoUmaVezSo() {
+        cache.put(chaves.chave("Spring Boot", PRIMEIRA_PAGINA), "spring antiga");
+
+        invalidacao.topicosImportados(new TopicosImportadosEvento(List.of(
+                evento(TopicoAlteradoEvento.Tipo.CRIADO, "Spring Boot"),
+                evento(TopicoAlteradoEvento.Tipo.CRIADO, "Spring Boot"),
+                evento(TopicoAlteradoEvento.Tipo.CRIADO, "HTML 5"))));
+
+        assertThat(cache.get(chaves.chave("Spring Boot", PRIMEIRA_PAGINA))).isNull();
+        assertThat(geracoes.geracao(GeracoesDoCache.escopo("Spring Boot"))).isEqualTo(1);
+        assertThat(geracoes.geracao(GeracoesDoCache.escopo("HTML 5"))).isEqualTo(1);
+        assertThat(geracoes.geracao(GeracoesDoCache.GERAL)).isEqualTo(1);
+    }
+
+    private TopicoAlteradoEvento evento(TopicoAlteradoEvento.Tipo tipo, String nomeCurso) {
+        Curso curso = new Curso();
+        curso.setId(1L);
+        curso.setNome(nomeCurso);
+        Topico topico = new Topico("Dúvida", "Erro ao criar projeto", curso);
+        topico.setId(1L);
+        return new TopicoAlteradoEvento(tipo, topico);
+    }
+}
@@ -0,0 +1,150 @@
+package br.com.alura.forum.config.datasource;
+
+import br.com.alura.forum.config.security.TokenService;
+import br.com.alura.forum.modelo.Curso;
+import br.com.alura.forum.modelo.Topico;
+import br.com.alura.forum.modelo.Usuario;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.servlet.http.Cookie;
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * A aplicação inteira (JPA, cache, filtros) sobre dois bancos H2: o primário e uma réplica. A réplica recebe uma cópia
+ * do primário com o título dos tópicos trocado, então a resposta mostra de qual banco o tópico foi lido. Como nada é
+ * replicado, uma escrita só aparece no primário, como numa réplica atrasada.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:roteamento-primario;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "forum.datasource.replicas.urls=" + LeiturasNaReplicaTest.REPLICA,
+        "forum.datasource.replicas.janela=60000"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class LeiturasNaReplicaTest {
+
+    static final String REPLICA = "jdbc:h2:mem:roteamento-replica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    @Qualifier("primario")
+    private DataSource primario;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TokenService tokenService;
+
+    private String nomeCurso;
+    private Long idTopico;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        nomeCurso = "Replica " + System.nanoTime();
+        token = new TransactionTemplate(transactionManager).execute(status -> {
+            Usuario usuario = new Usuario();
+            usuario.setNome("Aluno");
+            usuario.setEmail("replica-" + System.nanoTime() + "@email.com");
+            em.persist(usuario);
+
+            Curso curso = new Curso();
+            curso.setNome(nomeCurso);
+            curso.setCategoria("Programação");
+            em.persist(curso);
+
+            Topico topico = new Topico("Lido do primário", "Erro ao criar projeto", curso);
+            topico.setAutor(usuario);
+            em.persist(topico);
+            idTopico = topico.getId();
+            return "Bearer " + tokenService.gerarToken(new UsernamePasswordAuthenticationToken(usuario, null, usuario.getAuthorities()));
+        });
+        copiarParaAReplica();
+    }
+
+    @Test
+    void listaEDetalharLeemDaReplica() throws Exception {
+        mvc.perform(get("/topicos").param("nomeCurso", nomeCurso))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].titulo").value("Lido da réplica"));
+        mvc.perform(get("/topicos/{id}", idTopico))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.titulo").value("Lido da réplica"))
+                .andExpect(cookie().doesNotExist(LeituraDasPropriasEscritasFilter.COOKIE));
+    }
+
+    @Test
+    void soQuemEscreveuLeDoPrimarioDuranteAJanela() throws Exception {
+        Cookie escrita = mvc.perform(put("/topicos/{id}", idTopico).header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"titulo\":\"Título alterado\",\"mensagem\":\"Mensagem alterada\"}"))
+                .andExpect(status().isOk())
+                .andExpect(cookie().exists(LeituraDasPropriasEscritasFilter.COOKIE))
+                .andReturn().getResponse().getCookie(LeituraDasPropriasEscritasFilter.COOKIE);
+
+        mvc.perform(get("/topicos/{id}", idTopico).cookie(escrita))
+                .andExpect(jsonPath("$.titulo").value("Título alterado"));
+        mvc.perform(get("/topicos/{id}", idTopico).header(LeituraDasPropriasEscritasFilter.CABECALHO, escrita.getValue()))
+                .andExpect(jsonPath("$.titulo").value("Título alterado"));
+        // os outros clientes continuam na réplica
+        mvc.perform(get("/topicos/{id}", idTopico))
+                .andExpect(jsonPath("$.titulo").value("Lido da réplica"));
+    }
+
+    @Test
+    void paginaQueEntraNoCacheLogoDepoisDeUmaEscritaELidaDoPrimario() throws Exception {
+        mvc.perform(get("/topicos").param("nomeCurso", nomeCurso))
+                .andExpect(jsonPath("$.content[0].titulo").value("Lido da réplica"));
+
+        mvc.perform(put("/topicos/{id}", idTopico).header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"titulo\":\"Título alterado\",\"mensagem\":\"Mensagem alterada\"}"))
+                .andExpect(status().isOk());
+
+        // sem o cookie: a página da geração nova não pode ir para o cache com o que a réplica atrasada tem
+        mvc.perform(get("/topicos").param("nomeCurso", nomeCurso))
+                .andExpect(jsonPath("$.content[0].titulo").value("Título alterado"));
+    }
+
+    //A réplica vira uma cópia do primário (estrutura e dados), com os títulos trocados.
+    private void copiarParaAReplica() {
+        JdbcDataSource banco = new JdbcDataSource();
+        banco.setURL(REPLICA);
+        banco.setUser("sa");
+        JdbcTemplate replica = new JdbcTemplate(banco);
+        replica.execute("drop all objects");
+        for (String comando : new JdbcTemplate(primario).queryForList("script", String.class)) {
+            replica.execute(comando);
+        }
+        replica.update("update Topico set titulo = ?", "Lido da réplica");
+    }
+}
@@ -0,0 +1,148 @@
+package br.com.alura.forum.config.datasource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Dois (ou três) bancos H2 em memória fazem o papel do primário e das réplicas. Cada um tem uma tabela "origem"
+ * com o próprio nome, então o select mostra para qual banco a transação foi.
+ */
+class RoteamentoDeLeiturasTest {
+
+    private DataSource primario;
+    private DataSource replica;
+
+    @BeforeEach
+    void setUp() {
+        primario = banco("primario");
+        replica = banco("replica");
+    }
+
+    @Test
+    void transacaoSomenteLeituraVaiParaAReplica() {
+        Bancos bancos = new Bancos(new RoteamentoDeLeituras(primario, List.of(replica)));
+
+        assertThat(bancos.lerEmTransacaoSomenteLeitura()).isEqualTo("replica");
+        assertThat(bancos.lerEmTransacaoNormal()).isEqualTo("primario");
+        assertThat(bancos.lerSemTransacao()).isEqualTo("primario");
+    }
+
+    @Test
+    void leituraDentroDeNoPrimarioVaiParaOPrimario() {
+        Bancos bancos = new Bancos(new RoteamentoDeLeituras(primario, List.of(replica)));
+
+        assertThat(RoteamentoDeLeituras.noPrimario(bancos::lerEmTransacaoSomenteLeitura)).isEqualTo("primario");
+        assertThat(bancos.lerEmTransacaoSomenteLeitura()).isEqualTo("replica");
+    }
+
+    @Test
+    void soATransacaoQueEscreveuAvisaNoCommit() {
+        RoteamentoDeLeituras roteamento = new RoteamentoDeLeituras(primario, List.of(replica));
+        List<Long> commits = new ArrayList<>();
+        roteamento.setAoConfirmarEscrita(commits::add);
+        Bancos bancos = new Bancos(roteamento);
+
+        bancos.lerEmTransacaoNormal(); // sem readOnly, mas sem escrever nada
+        assertThat(commits).isEmpty();
+
+        bancos.escrever();
+        assertThat(commits).hasSize(1);
+        assertThat(bancos.lerEmTransacaoSomenteLeitura()).isEqualTo("replica"); // quem não escreveu continua na réplica
+    }
+
+    @Test
+    void escritaDesfeitaNaoAvisa() {
+        RoteamentoDeLeituras roteamento = new RoteamentoDeLeituras(primario, List.of(replica));
+        List<Long> commits = new ArrayList<>();
+        roteamento.setAoConfirmarEscrita(commits::add);
+
+        new Bancos(roteamento).escreverEDesfazer();
+
+        assertThat(commits).isEmpty();
+    }
+
+    @Test
+    void replicasSaoUsadasEmRodizio() {
+        DataSource outraReplica = banco("outra-replica");
+        Bancos bancos = new Bancos(new RoteamentoDeLeituras(primario, List.of(replica, outraReplica)));
+
+        List<String> origens = Arrays.asList(bancos.lerEmTransacaoSomenteLeitura(), bancos.lerEmTransacaoSomenteLeitura(),
+                bancos.lerEmTransacaoSomenteLeitura(), bancos.lerEmTransacaoSomenteLeitura());
+
+        assertThat(origens).containsExactly("replica", "outra-replica", "replica", "outra-replica");
+    }
+
+    @Test
+    void replicaForaDoArSaiDoRodizioEAsLeiturasVaoParaOPrimario() {
+        JdbcDataSource foraDoAr = new JdbcDataSource();
+        foraDoAr.setURL("jdbc:h2:mem:inexistente-" + System.nanoTime() + ";IFEXISTS=TRUE");
+        RoteamentoDeLeituras roteamento = new RoteamentoDeLeituras(primario, List.of(foraDoAr));
+        Bancos bancos = new Bancos(roteamento);
+
+        roteamento.verificarReplicas();
+
+        assertThat(bancos.lerEmTransacaoSomenteLeitura()).isEqualTo("primario");
+    }
+
+    private static DataSource banco(String nome) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + nome + "-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table origem (nome varchar(20))");
+        jdbc.update("insert into origem (nome) values (?)", nome);
+        return dataSource;
+    }
+
+    // o mesmo arranjo da aplicação: o roteamento atrás de um LazyConnectionDataSourceProxy
+    private static class Bancos {
+
+        private final JdbcTemplate jdbc;
+        private final TransactionTemplate transacao;
+        private final TransactionTemplate transacaoSomenteLeitura;
+
+        Bancos(RoteamentoDeLeituras roteamento) {
+            roteamento.afterPropertiesSet();
+            DataSource dataSource = new LazyConnectionDataSourceProxy(roteamento);
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+            this.jdbc = new JdbcTemplate(dataSource);
+            this.transacao = new TransactionTemplate(transactionManager);
+            this.transacaoSomenteLeitura = new TransactionTemplate(transactionManager);
+            this.transacaoSomenteLeitura.setReadOnly(true);
+        }
+
+        String lerEmTransacaoSomenteLeitura() {
+            return transacaoSomenteLeitura.execute(status -> lerSemTransacao());
+        }
+
+        String lerEmTransacaoNormal() {
+            return transacao.execute(status -> lerSemTransacao());
+        }
+
+        String lerSemTransacao() {
+            return jdbc.queryForObject("select nome from origem", String.class);
+        }
+
+        void escrever() {
+            transacao.executeWithoutResult(status -> jdbc.update("update origem set nome = nome"));
+        }
+
+        void escreverEDesfazer() {
+            transacao.executeWithoutResult(status -> {
+                jdbc.update("update origem set nome = nome");
+                status.setRollbackOnly();
+            });
+        }
+    }
+}
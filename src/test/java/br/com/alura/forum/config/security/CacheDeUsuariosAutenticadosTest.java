@@ -0,0 +1,59 @@
+package br.com.alura.forum.config.security;
+
+import br.com.alura.forum.modelo.Perfil;
+import br.com.alura.forum.modelo.Usuario;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CacheDeUsuariosAutenticadosTest {
+
+    @Autowired
+    private CacheDeUsuariosAutenticados cache;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concederERevogarPerfilTiraOUsuarioDoCache() {
+        TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+        Long id = transacao.execute(status -> {
+            Usuario usuario = new Usuario();
+            usuario.setNome("Aluno");
+            usuario.setEmail("perfis-" + System.nanoTime() + "@email.com");
+            usuario.getPerfis().add(perfil("ROLE_ALUNO"));
+            em.persist(usuario);
+            return usuario.getId();
+        });
+        assertThat(cache.buscar(id).getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ALUNO");
+
+        transacao.executeWithoutResult(status -> em.find(Usuario.class, id).getPerfis().add(perfil("ROLE_MODERADOR")));
+        assertThat(cache.buscar(id).getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactlyInAnyOrder("ROLE_ALUNO", "ROLE_MODERADOR");
+
+        transacao.executeWithoutResult(status -> em.find(Usuario.class, id).getPerfis()
+                .removeIf(perfil -> perfil.getNome().equals("ROLE_MODERADOR")));
+        assertThat(cache.buscar(id).getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ALUNO");
+    }
+
+    private Perfil perfil(String nome) {
+        Perfil perfil = new Perfil();
+        perfil.setNome(nome);
+        em.persist(perfil);
+        return perfil;
+    }
+}
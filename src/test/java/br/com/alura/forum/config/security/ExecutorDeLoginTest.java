@@ -0,0 +1,64 @@
+package br.com.alura.forum.config.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExecutorDeLoginTest {
+
+    private ExecutorDeLogin executor;
+    private CountDownLatch liberar;
+
+    // uma thread e uma vaga na fila; a thread fica ocupada até o liberar
+    @BeforeEach
+    void setUp() {
+        executor = new ExecutorDeLogin(1, 1, new SimpleMeterRegistry());
+        liberar = new CountDownLatch(1);
+        executor.executar(() -> {
+            try {
+                return liberar.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }, 10000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        liberar.countDown();
+        executor.encerrar();
+    }
+
+    @Test
+    void filaCheiaRecusaNaHora() {
+        executor.executar(() -> true, 10000);
+
+        assertThatThrownBy(() -> executor.executar(() -> true, 10000)).isInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    void tarefaQueExpiraNaFilaNaoRodaELiberaAVaga() throws Exception {
+        AtomicBoolean rodou = new AtomicBoolean();
+        CompletableFuture<Boolean> expirada = executor.executar(() -> rodou.getAndSet(true), 50);
+
+        assertThatThrownBy(() -> expirada.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class).hasCauseInstanceOf(TimeoutException.class);
+        CompletableFuture<Boolean> seguinte = executor.executar(() -> true, 10000); // a vaga da fila voltou
+
+        liberar.countDown();
+        assertThat(seguinte.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(rodou).isFalse();
+    }
+}
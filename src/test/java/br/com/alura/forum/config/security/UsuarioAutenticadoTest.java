@@ -0,0 +1,23 @@
+package br.com.alura.forum.config.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UsuarioAutenticadoTest {
+
+    @Test
+    void nomeDaAutenticacaoEOIdMesmoSemEmail() {
+        // como o principal montado só com as claims do token, que não trazem o email
+        UsuarioAutenticado usuario = new UsuarioAutenticado(42L, "Aluno", null, List.of(new SimpleGrantedAuthority("ROLE_ALUNO")));
+
+        UsernamePasswordAuthenticationToken autenticacao =
+                new UsernamePasswordAuthenticationToken(usuario, null, usuario.getAuthorities());
+
+        assertThat(autenticacao.getName()).isEqualTo("42");
+    }
+}
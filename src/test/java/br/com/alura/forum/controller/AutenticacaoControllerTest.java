@@ -0,0 +1,81 @@
+package br.com.alura.forum.controller;
+
+import br.com.alura.forum.config.security.ExecutorDeLogin;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * O pool do login com uma thread e uma vaga na fila; cada teste ocupa a thread antes de chamar o /auth.
+ */
+@SpringBootTest(properties = {"forum.auth.login.threads=1", "forum.auth.login.fila=1", "forum.auth.login.timeout=200"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AutenticacaoControllerTest {
+
+    private static final String LOGIN = "{\"email\":\"aluno@email.com\",\"senha\":\"123456\"}";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ExecutorDeLogin executorDeLogin;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private CountDownLatch liberar;
+
+    @BeforeEach
+    void setUp() {
+        liberar = new CountDownLatch(1);
+        executorDeLogin.executar(() -> {
+            try {
+                return liberar.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }, 10000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        liberar.countDown();
+    }
+
+    @Test
+    void loginComAFilaCheiaRecebe503() throws Exception {
+        executorDeLogin.executar(() -> true, 10000); // ocupa a vaga da fila
+
+        login();
+    }
+
+    @Test
+    void loginQueEsperaMaisQueOTimeoutRecebe503() throws Exception {
+        login();
+    }
+
+    private void login() throws Exception {
+        MvcResult resultado = mvc.perform(post("/auth").contentType(MediaType.APPLICATION_JSON).content(LOGIN)).andReturn();
+        resultado.getAsyncResult(5000);
+        mvc.perform(asyncDispatch(resultado)).andExpect(status().isServiceUnavailable());
+        // o SQL do login roda no executorDeLogin: a requisição não entra na contagem de consultas
+        assertThat(registry.find("forum.http.consultas").tag("uri", "/auth").summary()).isNull();
+    }
+}
@@ -0,0 +1,145 @@
+package br.com.alura.forum.controller;
+
+import br.com.alura.forum.modelo.Curso;
+import br.com.alura.forum.modelo.StatusTopico;
+import br.com.alura.forum.modelo.Topico;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ExportacaoDeTopicosControllerTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2021, 1, 1, 0, 0);
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void exportaUmTopicoPorLinhaEmOrdemDeId() throws Exception {
+        String curso = "Exportacao " + System.nanoTime();
+        List<Long> ids = criarTopicos(curso, 3, StatusTopico.NAO_RESPONDIDO);
+
+        List<JsonNode> linhas = exportar(get("/topicos/exportacao").param("nomeCurso", curso));
+
+        assertThat(linhas).extracting(linha -> linha.get("id").asLong()).containsExactlyElementsOf(ids);
+        assertThat(linhas).allSatisfy(linha -> {
+            assertThat(linha.get("nomeCurso").asText()).isEqualTo(curso);
+            assertThat(linha.get("status").asText()).isEqualTo("NAO_RESPONDIDO");
+        });
+    }
+
+    @Test
+    void filtraPorCursoStatusEData() throws Exception {
+        String curso = "Exportacao " + System.nanoTime();
+        List<Long> naoRespondidos = criarTopicos(curso, 2, StatusTopico.NAO_RESPONDIDO);
+        List<Long> solucionados = criarTopicos(curso, 2, StatusTopico.SOLUCIONADO);
+        criarTopicos("Outro " + System.nanoTime(), 2, StatusTopico.SOLUCIONADO);
+
+        assertThat(ids(exportar(get("/topicos/exportacao").param("nomeCurso", curso)
+                .param("status", "SOLUCIONADO")))).containsExactlyElementsOf(solucionados);
+        // cada tópico foi criado um dia depois do anterior: "desde" corta os dois primeiros
+        assertThat(ids(exportar(get("/topicos/exportacao").param("nomeCurso", curso)
+                .param("desde", INICIO.plusDays(2).toString())))).containsExactly(solucionados.get(0), solucionados.get(1));
+        assertThat(ids(exportar(get("/topicos/exportacao").param("nomeCurso", curso)
+                .param("status", "NAO_RESPONDIDO")))).containsExactlyElementsOf(naoRespondidos);
+    }
+
+    @Test
+    void cursoInexistenteDevolveCorpoVazio() throws Exception {
+        assertThat(exportar(get("/topicos/exportacao").param("nomeCurso", "Curso que nao existe"))).isEmpty();
+    }
+
+    @Test
+    void aposIdRetomaDepoisDaUltimaLinhaRecebida() throws Exception {
+        String curso = "Exportacao " + System.nanoTime();
+        List<Long> ids = criarTopicos(curso, 5, StatusTopico.NAO_RESPONDIDO);
+
+        List<Long> retomados = ids(exportar(get("/topicos/exportacao").param("nomeCurso", curso)
+                .param("aposId", String.valueOf(ids.get(1)))));
+
+        assertThat(retomados).containsExactlyElementsOf(ids.subList(2, 5));
+    }
+
+    private List<JsonNode> exportar(MockHttpServletRequestBuilder requisicao) throws Exception {
+        MvcResult resultado = mvc.perform(requisicao)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String corpo = mvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        List<JsonNode> linhas = new ArrayList<>();
+        for (String linha : corpo.split("\n")) {
+            if (!linha.isEmpty()) {
+                linhas.add(objectMapper.readTree(linha));
+            }
+        }
+        return linhas;
+    }
+
+    private List<Long> ids(List<JsonNode> linhas) {
+        List<Long> ids = new ArrayList<>();
+        linhas.forEach(linha -> ids.add(linha.get("id").asLong()));
+        return ids;
+    }
+
+    private List<Long> criarTopicos(String nomeCurso, int quantidade, StatusTopico status) {
+        return new TransactionTemplate(transactionManager).execute(transacao -> {
+            Curso curso = em.createQuery("select c from Curso c where c.nome = :nome", Curso.class)
+                    .setParameter("nome", nomeCurso).getResultStream().findFirst().orElseGet(() -> {
+                        Curso novo = new Curso();
+                        novo.setNome(nomeCurso);
+                        novo.setCategoria("Programação");
+                        em.persist(novo);
+                        return novo;
+                    });
+            long jaExistentes = em.createQuery("select count(t) from Topico t where t.curso = :curso", Long.class)
+                    .setParameter("curso", curso).getSingleResult();
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < quantidade; i++) {
+                Topico topico = new Topico("Tópico " + i, "Mensagem " + i, curso);
+                topico.setStatus(status);
+                topico.setDataCriacao(INICIO.plusDays(jaExistentes + i));
+                em.persist(topico);
+                ids.add(topico.getId());
+            }
+            return ids;
+        });
+    }
+}
@@ -0,0 +1,181 @@
+package br.com.alura.forum.controller;
+
+import br.com.alura.forum.config.security.TokenService;
+import br.com.alura.forum.modelo.Curso;
+import br.com.alura.forum.modelo.Usuario;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ImportacaoDeTopicosControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TokenService tokenService;
+
+    private String curso;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        curso = "Importacao " + System.nanoTime();
+        token = new TransactionTemplate(transactionManager).execute(status -> {
+            Curso novo = new Curso();
+            novo.setNome(curso);
+            novo.setCategoria("Programação");
+            em.persist(novo);
+
+            Usuario usuario = new Usuario();
+            usuario.setNome("Migrador");
+            usuario.setEmail("migrador-" + System.nanoTime() + "@email.com");
+            em.persist(usuario);
+            return "Bearer " + tokenService.gerarToken(new UsernamePasswordAuthenticationToken(usuario, null, usuario.getAuthorities()));
+        });
+    }
+
+    @Test
+    void importaUmArrayJsonComAsRespostasNosTopicosGerados() throws Exception {
+        importar(MediaType.APPLICATION_JSON, "[" +
+                topico("Primeiro tópico", "{\"mensagem\":\"Primeira resposta\"},{\"mensagem\":\"Segunda resposta\",\"solucao\":true}") + "," +
+                topico("Segundo tópico", "") + "]")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.topicosImportados").value(2))
+                .andExpect(jsonPath("$.respostasImportadas").value(2))
+                .andExpect(jsonPath("$.erros").isEmpty());
+
+        Long primeiro = idDoTopico("Primeiro tópico");
+        assertThat(jdbc.queryForList("select mensagem from Resposta where topico_id = ? order by id", String.class, primeiro))
+                .containsExactly("Primeira resposta", "Segunda resposta");
+        assertThat(jdbc.queryForObject("select quantidadeDeRespostas from Topico where id = ?", Integer.class, primeiro))
+                .isEqualTo(2);
+        assertThat(jdbc.queryForObject("select count(*) from Resposta where topico_id = ?", Integer.class,
+                idDoTopico("Segundo tópico"))).isZero();
+    }
+
+    @Test
+    void importaUmJsonPorLinha() throws Exception {
+        importar(MediaType.APPLICATION_NDJSON,
+                topico("Primeiro tópico", "{\"mensagem\":\"Uma resposta\"}") + "\n" +
+                topico("Segundo tópico", "") + "\n")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.topicosImportados").value(2))
+                .andExpect(jsonPath("$.respostasImportadas").value(1));
+
+        assertThat(jdbc.queryForList("select mensagem from Resposta where topico_id = ?", String.class,
+                idDoTopico("Primeiro tópico"))).containsExactly("Uma resposta");
+    }
+
+    @Test
+    void registrosInvalidosVoltamComALinhaSemImpedirOsValidos() throws Exception {
+        importar(MediaType.APPLICATION_NDJSON,
+                topico("Tópico válido", "") + "\n" +
+                "{\"titulo\":\"Oi\",\"mensagem\":\"Mensagem do tópico\",\"nomeCurso\":\"" + curso + "\"}\n" +
+                "{\"titulo\":\"Curso errado\",\"mensagem\":\"Mensagem do tópico\",\"nomeCurso\":\"Curso que nao existe\"}\n" +
+                "{\"titulo\":\"Data errada\",\"mensagem\":\"Mensagem do tópico\",\"nomeCurso\":\"" + curso + "\",\"dataCriacao\":\"ontem\"}\n" +
+                topico("Outro tópico válido", "") + "\n")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.topicosImportados").value(2))
+                .andExpect(jsonPath("$.erros[*].linha").value(contains(2, 3, 4)))
+                .andExpect(jsonPath("$.erros[0].campo").value("titulo"))
+                .andExpect(jsonPath("$.erros[1].campo").value("nomeCurso"))
+                .andExpect(jsonPath("$.erros[2].campo").value("dataCriacao"));
+
+        assertThat(jdbc.queryForList("select titulo from Topico where curso_id = (select id from Curso where nome = ?) order by id",
+                String.class, curso)).containsExactly("Tópico válido", "Outro tópico válido");
+    }
+
+    @Test
+    void registroRecusadoPeloBancoNaoDerrubaOsOutrosDoLote() throws Exception {
+        String tituloGrandeDemais = "T".repeat(300); // passa na validação, mas não cabe na coluna
+        importar(MediaType.APPLICATION_NDJSON,
+                topico("Antes do recusado", "{\"mensagem\":\"Resposta mantida\"}") + "\n" +
+                topico(tituloGrandeDemais, "{\"mensagem\":\"Resposta descartada\"}") + "\n" +
+                topico("Depois do recusado", "") + "\n")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.topicosImportados").value(2))
+                .andExpect(jsonPath("$.respostasImportadas").value(1))
+                .andExpect(jsonPath("$.erros.length()").value(1))
+                .andExpect(jsonPath("$.erros[0].linha").value(2));
+
+        List<String> titulos = jdbc.queryForList("select titulo from Topico where curso_id = (select id from Curso where nome = ?) order by id",
+                String.class, curso);
+        assertThat(titulos).containsExactly("Antes do recusado", "Depois do recusado");
+        assertThat(jdbc.queryForList("select mensagem from Resposta where topico_id = ?", String.class,
+                idDoTopico("Antes do recusado"))).containsExactly("Resposta mantida");
+    }
+
+    @Test
+    void listaDeRespostasNulaOuRespostaNulaViramErroDoRegistro() throws Exception {
+        importar(MediaType.APPLICATION_NDJSON,
+                topico("Tópico válido", "") + "\n" +
+                "{\"titulo\":\"Respostas nulas\",\"mensagem\":\"Mensagem do tópico\",\"nomeCurso\":\"" + curso + "\",\"respostas\":null}\n" +
+                topico("Resposta nula", "null") + "\n")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.topicosImportados").value(1))
+                .andExpect(jsonPath("$.erros[*].linha").value(contains(2, 3)))
+                .andExpect(jsonPath("$.erros[0].campo").value("respostas"))
+                .andExpect(jsonPath("$.erros[1].campo").value(startsWith("respostas[0]")));
+
+        assertThat(jdbc.queryForList("select titulo from Topico where curso_id = (select id from Curso where nome = ?)",
+                String.class, curso)).containsExactly("Tópico válido");
+    }
+
+    @Test
+    void semTokenNaoImporta() throws Exception {
+        mvc.perform(post("/topicos/importacao").contentType(MediaType.APPLICATION_JSON).content("[" + topico("Sem token", "") + "]"))
+                .andExpect(status().isForbidden());
+    }
+
+    private ResultActions importar(MediaType tipo, String corpo) throws Exception {
+        return mvc.perform(post("/topicos/importacao").header(HttpHeaders.AUTHORIZATION, token)
+                .contentType(tipo)
+                .content(corpo));
+    }
+
+    private String topico(String titulo, String respostas) {
+        return "{\"titulo\":\"" + titulo + "\",\"mensagem\":\"Mensagem do tópico\",\"nomeCurso\":\"" + curso + "\"," +
+                "\"respostas\":[" + respostas + "]}";
+    }
+
+    private Long idDoTopico(String titulo) {
+        return jdbc.queryForObject("select t.id from Topico t join Curso c on c.id = t.curso_id where c.nome = ? and t.titulo = ?",
+                Long.class, curso, titulo);
+    }
+}
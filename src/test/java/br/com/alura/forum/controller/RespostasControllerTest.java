@@ -0,0 +1,165 @@
+package br.com.alura.forum.controller;
+
+import br.com.alura.forum.config.security.TokenService;
+import br.com.alura.forum.modelo.Curso;
+import br.com.alura.forum.modelo.Resposta;
+import br.com.alura.forum.modelo.Topico;
+import br.com.alura.forum.modelo.Usuario;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RespostasControllerTest {
+
+    private static final LocalDateTime CRIACAO = LocalDateTime.of(2021, 10, 1, 12, 0);
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TokenService tokenService;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        token = new TransactionTemplate(transactionManager).execute(status -> {
+            Usuario usuario = new Usuario();
+            usuario.setNome("Aluno");
+            usuario.setEmail("respostas-" + System.nanoTime() + "@email.com");
+            em.persist(usuario);
+            return "Bearer " + tokenService.gerarToken(new UsernamePasswordAuthenticationToken(usuario, null, usuario.getAuthorities()));
+        });
+    }
+
+    @Test
+    void responderSomaNaQuantidadeEMoveAUltimaAtividadeParaANovaResposta() throws Exception {
+        List<Long> respostas = new ArrayList<>();
+        Long idTopico = criarTopico(respostas, CRIACAO.plusHours(1));
+
+        mvc.perform(post("/topicos/{id}/respostas", idTopico).header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"mensagem\":\"Tente limpar o projeto\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.mensagem").value("Tente limpar o projeto"));
+
+        assertThat(quantidadeDeRespostas(idTopico)).isEqualTo(2);
+        assertThat(ultimaAtividade(idTopico)).isEqualTo(jdbc.queryForObject(
+                "select max(dataCriacao) from Resposta where topico_id = ?", LocalDateTime.class, idTopico));
+    }
+
+    @Test
+    void removerVoltaAUltimaAtividadeParaARespostaMaisRecenteQueSobrou() throws Exception {
+        List<Long> respostas = new ArrayList<>();
+        Long idTopico = criarTopico(respostas, CRIACAO.plusHours(1), CRIACAO.plusHours(2));
+
+        remover(idTopico, respostas.get(1));
+        assertThat(quantidadeDeRespostas(idTopico)).isEqualTo(1);
+        assertThat(ultimaAtividade(idTopico)).isEqualTo(CRIACAO.plusHours(1));
+
+        remover(idTopico, respostas.get(0));
+        assertThat(quantidadeDeRespostas(idTopico)).isZero();
+        assertThat(ultimaAtividade(idTopico)).isEqualTo(CRIACAO); // sem respostas: a criação do tópico
+    }
+
+    @Test
+    void removerUmaRespostaAntigaNaoMudaAUltimaAtividade() throws Exception {
+        List<Long> respostas = new ArrayList<>();
+        Long idTopico = criarTopico(respostas, CRIACAO.plusHours(1), CRIACAO.plusHours(2));
+
+        remover(idTopico, respostas.get(0));
+
+        assertThat(ultimaAtividade(idTopico)).isEqualTo(CRIACAO.plusHours(2));
+    }
+
+    @Test
+    void respostaDeOutroTopicoOuTopicoInexistenteDevolve404() throws Exception {
+        List<Long> respostas = new ArrayList<>();
+        Long idTopico = criarTopico(respostas, CRIACAO.plusHours(1));
+        Long outroTopico = criarTopico(new ArrayList<>());
+
+        mvc.perform(delete("/topicos/{idTopico}/respostas/{id}", outroTopico, respostas.get(0))
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isNotFound());
+        mvc.perform(post("/topicos/{id}/respostas", -1L).header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"mensagem\":\"Tente limpar o projeto\"}"))
+                .andExpect(status().isNotFound());
+
+        assertThat(quantidadeDeRespostas(idTopico)).isEqualTo(1);
+        assertThat(quantidadeDeRespostas(outroTopico)).isZero();
+    }
+
+    private void remover(Long idTopico, Long idResposta) throws Exception {
+        mvc.perform(delete("/topicos/{idTopico}/respostas/{id}", idTopico, idResposta).header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk());
+    }
+
+    private Integer quantidadeDeRespostas(Long idTopico) {
+        return jdbc.queryForObject("select quantidadeDeRespostas from Topico where id = ?", Integer.class, idTopico);
+    }
+
+    private LocalDateTime ultimaAtividade(Long idTopico) {
+        return jdbc.queryForObject("select ultimaAtividade from Topico where id = ?", LocalDateTime.class, idTopico);
+    }
+
+    // tópico criado em CRIACAO, com uma resposta em cada data (os ids vão para a lista, na mesma ordem)
+    private Long criarTopico(List<Long> respostas, LocalDateTime... datas) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Curso curso = new Curso();
+            curso.setNome("Curso " + System.nanoTime());
+            curso.setCategoria("Programação");
+            em.persist(curso);
+
+            Topico topico = new Topico("Dúvida", "Erro ao criar projeto", curso);
+            topico.setDataCriacao(CRIACAO);
+            topico.setUltimaAtividade(datas.length == 0 ? CRIACAO : datas[datas.length - 1]);
+            topico.setQuantidadeDeRespostas(datas.length);
+            em.persist(topico);
+
+            for (LocalDateTime data : datas) {
+                Resposta resposta = new Resposta();
+                resposta.setMensagem("Resposta de " + data);
+                resposta.setTopico(topico);
+                resposta.setDataCriacao(data);
+                em.persist(resposta);
+                respostas.add(resposta.getId());
+            }
+            return topico.getId();
+        });
+    }
+}
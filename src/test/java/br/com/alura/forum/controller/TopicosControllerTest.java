@@ -0,0 +1,273 @@
+package br.com.alura.forum.controller;
+
+import br.com.alura.forum.OrcamentoDeConsultas;
+import br.com.alura.forum.config.security.TokenService;
+import br.com.alura.forum.controller.form.AtualizacaoTopicoForm;
+import br.com.alura.forum.modelo.Curso;
+import br.com.alura.forum.modelo.Perfil;
+import br.com.alura.forum.modelo.Resposta;
+import br.com.alura.forum.modelo.Topico;
+import br.com.alura.forum.modelo.Usuario;
+import br.com.alura.forum.repository.TopicoRepository;
+import com.jayway.jsonpath.JsonPath;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class TopicosControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private TopicoRepository topicoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private Statistics estatisticas;
+
+    private OrcamentoDeConsultas orcamento;
+
+    @BeforeEach
+    void setUp() {
+        estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        orcamento = new OrcamentoDeConsultas(entityManagerFactory);
+    }
+
+    @Test
+    void detalharTemQuantidadeFixaDeConsultasIndependenteDoNumeroDeRespostas() throws Exception {
+        Long poucasRespostas = criarTopico(5, 2);
+        Long muitasRespostas = criarTopico(200, 20);
+
+        long consultasComPoucasRespostas = consultasDoDetalhar(poucasRespostas, 5);
+        long consultasComMuitasRespostas = consultasDoDetalhar(muitasRespostas, 200);
+
+        assertThat(consultasComMuitasRespostas).isEqualTo(consultasComPoucasRespostas);
+    }
+
+    @Test
+    void respostasSaoPercorridasPorCursorSemRepetirNemPular() throws Exception {
+        Long id = criarTopico(25, 3);
+
+        List<String> mensagens = new ArrayList<>();
+        String cursor = "";
+        do {
+            String json = mvc.perform(get("/topicos/{id}/respostas", id).param("after", cursor).param("tamanho", "10"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            mensagens.addAll(JsonPath.read(json, "$.conteudo[*].mensagem"));
+            cursor = JsonPath.read(json, "$.proximoCursor");
+        } while (cursor != null);
+
+        assertThat(mensagens).hasSize(25).doesNotHaveDuplicates();
+        assertThat(mensagens.get(0)).isEqualTo("Resposta 0");
+        assertThat(mensagens.get(24)).isEqualTo("Resposta 24");
+    }
+
+    @Test
+    void etagDoDetalheMudaAoAtualizarEAoResponder() throws Exception {
+        Long id = criarTopico(1, 1);
+        String token = token(criarUsuario("autor-detalhe"));
+
+        String etag = etagDe(get("/topicos/{id}", id));
+        long consultas = orcamento.medir(() -> mvc.perform(get("/topicos/{id}", id).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified()));
+        assertThat(consultas).isEqualTo(1); // só a versão, sem carregar o tópico
+
+        mvc.perform(put("/topicos/{id}", id).header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"titulo\":\"Dúvida atualizada\",\"mensagem\":\"Erro ao criar o projeto\"}"))
+                .andExpect(status().isOk());
+        String depoisDeAtualizar = etagDe(get("/topicos/{id}", id).header(HttpHeaders.IF_NONE_MATCH, etag));
+        assertThat(depoisDeAtualizar).isNotEqualTo(etag);
+
+        responder(id, token);
+        String depoisDeResponder = etagDe(get("/topicos/{id}", id).header(HttpHeaders.IF_NONE_MATCH, depoisDeAtualizar));
+        assertThat(depoisDeResponder).isNotEqualTo(depoisDeAtualizar);
+    }
+
+    @Test
+    void atualizarNaoDesfazAsVisualizacoesGravadasDepoisQueOTopicoFoiCarregado() throws Exception {
+        Long id = criarTopico(0, 1);
+        AtualizacaoTopicoForm form = new AtualizacaoTopicoForm();
+        form.setTitulo("Dúvida atualizada");
+        form.setMensagem("Erro ao criar o projeto");
+
+        // o PUT carrega o tópico; antes do commit dele, o ContadorDeVisualizacoes grava 5 visualizações (outra transação)
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertThat(em.find(Topico.class, id).getVisualizacoes()).isZero();
+            CompletableFuture.runAsync(() -> jdbc.update("update Topico set visualizacoes = visualizacoes + ? where id = ?", 5, id))
+                    .join();
+            form.atualizar(id, topicoRepository);
+        });
+
+        assertThat(jdbc.queryForObject("select titulo from Topico where id = ?", String.class, id)).isEqualTo("Dúvida atualizada");
+        assertThat(jdbc.queryForObject("select visualizacoes from Topico where id = ?", Long.class, id)).isEqualTo(5L);
+        mvc.perform(get("/topicos/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, startsWith("W/"))); // o corpo traz as visualizações
+    }
+
+    @Test
+    void etagDaListagemMudaAoRemoverEAoResponder() throws Exception {
+        Long removido = criarTopico(0, 1);
+        Long respondido = criarTopico(0, 1);
+        String token = token(criarUsuario("autor-listagem"));
+
+        String etag = etagDe(get("/topicos"));
+        mvc.perform(get("/topicos").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        mvc.perform(delete("/topicos/{id}", removido).header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk());
+        String depoisDeRemover = etagDe(get("/topicos").header(HttpHeaders.IF_NONE_MATCH, etag));
+        assertThat(depoisDeRemover).isNotEqualTo(etag);
+
+        responder(respondido, token);
+        String depoisDeResponder = etagDe(get("/topicos").header(HttpHeaders.IF_NONE_MATCH, depoisDeRemover));
+        assertThat(depoisDeResponder).isNotEqualTo(depoisDeRemover);
+    }
+
+    @Test
+    void cadastroRejeitaCursoInexistenteEUsaODicionarioParaOExistente() throws Exception {
+        criarTopico(0, 1); // cria o curso "Spring Boot"
+        String token = token(criarUsuario("autor-cadastro"));
+
+        mvc.perform(post("/topicos").header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"titulo\":\"Dúvida nova\",\"mensagem\":\"Erro ao criar o projeto\",\"nomeCurso\":\"Cobol\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$[0].campo").value("nomeCurso"));
+
+        mvc.perform(post("/topicos").header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"titulo\":\"Dúvida nova\",\"mensagem\":\"Erro ao criar o projeto\",\"nomeCurso\":\"Spring Boot\"}"))
+                .andExpect(status().isCreated());
+        estatisticas.clear();
+        mvc.perform(post("/topicos").header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"titulo\":\"Outra dúvida\",\"mensagem\":\"Erro ao criar o projeto\",\"nomeCurso\":\"Spring Boot\"}"))
+                .andExpect(status().isCreated());
+        assertThat(estatisticas.getEntityLoadCount()).isZero(); // o curso não é carregado do banco
+    }
+
+    private String etagDe(MockHttpServletRequestBuilder requisicao) throws Exception {
+        String etag = mvc.perform(requisicao)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotBlank();
+        return etag;
+    }
+
+    private void responder(Long idTopico, String token) throws Exception {
+        mvc.perform(post("/topicos/{id}/respostas", idTopico).header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"mensagem\":\"Tente limpar o projeto\"}"))
+                .andExpect(status().isCreated());
+    }
+
+    private String token(Usuario usuario) {
+        return "Bearer " + tokenService.gerarToken(new UsernamePasswordAuthenticationToken(usuario, null, usuario.getAuthorities()));
+    }
+
+    private Usuario criarUsuario(String nome) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Usuario usuario = new Usuario();
+            usuario.setNome(nome);
+            usuario.setEmail(nome + "-" + System.nanoTime() + "@email.com");
+            em.persist(usuario);
+            return usuario;
+        });
+    }
+
+    // tópico com o autor (e o total de respostas), perfis do autor e a primeira página das respostas
+    private long consultasDoDetalhar(Long id, int respostas) throws Exception {
+        return orcamento.verificar("GET /topicos/" + id, 3, () -> mvc.perform(get("/topicos/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.respostas.length()").value(Math.min(respostas, TopicosController.RESPOSTAS_NO_DETALHE)))
+                .andExpect(jsonPath("$.totalDeRespostas").value(respostas)));
+    }
+
+    private Long criarTopico(int respostas, int autores) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Perfil perfil = new Perfil();
+            perfil.setNome("ROLE_ALUNO");
+            em.persist(perfil);
+
+            List<Usuario> usuarios = new ArrayList<>();
+            for (int i = 0; i < autores; i++) {
+                Usuario usuario = new Usuario();
+                usuario.setNome("Aluno " + i);
+                usuario.setEmail("aluno" + i + "-" + System.nanoTime() + "@email.com");
+                usuario.getPerfis().add(perfil);
+                em.persist(usuario);
+                usuarios.add(usuario);
+            }
+
+            Curso curso = new Curso();
+            curso.setNome("Spring Boot");
+            curso.setCategoria("Programação");
+            em.persist(curso);
+
+            Topico topico = new Topico("Dúvida", "Erro ao criar projeto", curso);
+            topico.setAutor(usuarios.get(0));
+            topico.setQuantidadeDeRespostas(respostas);
+            em.persist(topico);
+
+            for (int i = 0; i < respostas; i++) {
+                Resposta resposta = new Resposta();
+                resposta.setMensagem("Resposta " + i);
+                resposta.setTopico(topico);
+                resposta.setAutor(usuarios.get(i % autores));
+                em.persist(resposta);
+            }
+            return topico.getId();
+        });
+    }
+}
@@ -0,0 +1,74 @@
+package br.com.alura.forum.service;
+
+import br.com.alura.forum.evento.TopicoVisualizadoEvento;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ContadorDeVisualizacoesTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry registry;
+    private ContadorDeVisualizacoes contador;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        registry = new SimpleMeterRegistry();
+        contador = new ContadorDeVisualizacoes(jdbcTemplate, mock(PlatformTransactionManager.class), registry, 60000, 1000);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void gravaASomaDeCadaTopicoNumUnicoLote() {
+        visualizar(2L, 3);
+        visualizar(1L, 2);
+
+        contador.gravar();
+
+        ArgumentCaptor<List<Object[]>> argumentos = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), argumentos.capture());
+        assertThat(argumentos.getValue()).containsExactly(new Object[]{2L, 1L}, new Object[]{3L, 2L});
+        assertThat(registry.get("forum.visualizacoes.pendentes").gauge().value()).isZero();
+        assertThat(contador.pendentes(2L)).isZero();
+    }
+
+    @Test
+    void semVisualizacoesNaoVaiAoBanco() {
+        contador.gravar();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void visualizacoesNaoGravadasContinuamPendentes() {
+        visualizar(1L, 4);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new DataAccessResourceFailureException("banco fora"));
+
+        assertThatThrownBy(contador::gravar).isInstanceOf(DataAccessResourceFailureException.class);
+
+        assertThat(contador.pendentes(1L)).isEqualTo(4);
+        assertThat(registry.get("forum.visualizacoes.pendentes").gauge().value()).isEqualTo(4);
+    }
+
+    private void visualizar(Long id, int vezes) {
+        for (int i = 0; i < vezes; i++) {
+            contador.topicoVisualizado(new TopicoVisualizadoEvento(id, "Spring Boot"));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package br.com.alura.forum.service;
+
+import br.com.alura.forum.modelo.Curso;
+import br.com.alura.forum.repository.CursoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DicionarioDeCursosTest {
+
+    private CursoRepository cursoRepository;
+    private DicionarioDeCursos dicionario;
+
+    @BeforeEach
+    void setUp() {
+        cursoRepository = mock(CursoRepository.class);
+        when(cursoRepository.findAll(any(Sort.class))).thenReturn(List.of(curso(1L, "Spring Boot")));
+        dicionario = new DicionarioDeCursos(cursoRepository, 60000);
+    }
+
+    @Test
+    void nomeInexistenteSoVaiAoBancoUmaVezAteARecarga() {
+        assertThat(dicionario.buscar("Cobol")).isEmpty();
+        assertThat(dicionario.buscar("Cobol")).isEmpty();
+        verify(cursoRepository, times(1)).findFirstByNomeOrderById("Cobol");
+
+        // o curso foi criado depois da consulta: a recarga esquece os ausentes
+        when(cursoRepository.findAll(any(Sort.class))).thenReturn(List.of(curso(1L, "Spring Boot"), curso(2L, "Cobol")));
+        dicionario.recarregar();
+        assertThat(dicionario.buscar("Cobol")).map(Curso::getId).contains(2L);
+    }
+
+    @Test
+    void cursoCriadoDepoisDaCargaEntraNoDicionario() {
+        assertThat(dicionario.buscar("Spring Boot")).map(Curso::getId).contains(1L);
+        when(cursoRepository.findFirstByNomeOrderById("HTML 5")).thenReturn(curso(3L, "HTML 5"));
+
+        assertThat(dicionario.buscar("HTML 5")).map(Curso::getId).contains(3L);
+        assertThat(dicionario.buscar("HTML 5")).map(Curso::getId).contains(3L);
+        verify(cursoRepository, times(1)).findFirstByNomeOrderById("HTML 5");
+    }
+
+    private static Curso curso(Long id, String nome) {
+        Curso curso = new Curso();
+        curso.setId(id);
+        curso.setNome(nome);
+        return curso;
+    }
+}
@@ -0,0 +1,103 @@
+package br.com.alura.forum.service;
+
+import br.com.alura.forum.modelo.Resposta;
+import br.com.alura.forum.modelo.Topico;
+import br.com.alura.forum.repository.TopicoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ReconciliacaoDeContadoresTest {
+
+    private static final LocalDateTime CRIACAO = LocalDateTime.of(2021, 10, 1, 12, 0);
+
+    @Autowired
+    private ReconciliacaoDeContadores reconciliacao;
+
+    @Autowired
+    private TopicoRepository topicoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void corrigeSoOsTopicosDaFaixaQueDivergemDasRespostas() {
+        List<Long> ids = criarTopicos(3);
+        Long comRespostas = ids.get(0);
+        Long semRespostas = ids.get(1);
+        Long foraDaFaixa = ids.get(2);
+        // contadores errados, como os de tópicos inseridos direto no banco
+        jdbc.update("update Topico set quantidadeDeRespostas = 7, ultimaAtividade = ? where id in (?, ?, ?)",
+                CRIACAO.minusDays(1), comRespostas, semRespostas, foraDaFaixa);
+
+        TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+        int corrigidos = transacao.execute(status -> topicoRepository.corrigirRespostas(comRespostas - 1, semRespostas));
+
+        assertThat(corrigidos).isEqualTo(2);
+        assertThat(quantidadeDeRespostas(comRespostas)).isEqualTo(2);
+        assertThat(ultimaAtividade(comRespostas)).isEqualTo(CRIACAO.plusHours(2)); // a resposta mais recente
+        assertThat(quantidadeDeRespostas(semRespostas)).isZero();
+        assertThat(ultimaAtividade(semRespostas)).isEqualTo(CRIACAO); // sem respostas: a criação do tópico
+        assertThat(quantidadeDeRespostas(foraDaFaixa)).isEqualTo(7);
+
+        // de novo, nada a corrigir: só os tópicos diferentes entram no update
+        int novamente = transacao.execute(status -> topicoRepository.corrigirRespostas(comRespostas - 1, semRespostas));
+        assertThat(novamente).isZero();
+
+        reconciliacao.reconciliarRespostas();
+        assertThat(quantidadeDeRespostas(foraDaFaixa)).isEqualTo(2);
+        assertThat(ultimaAtividade(foraDaFaixa)).isEqualTo(CRIACAO.plusHours(2));
+    }
+
+    private Integer quantidadeDeRespostas(Long idTopico) {
+        return jdbc.queryForObject("select quantidadeDeRespostas from Topico where id = ?", Integer.class, idTopico);
+    }
+
+    private LocalDateTime ultimaAtividade(Long idTopico) {
+        return jdbc.queryForObject("select ultimaAtividade from Topico where id = ?", LocalDateTime.class, idTopico);
+    }
+
+    // o primeiro e o terceiro com duas respostas, o segundo sem nenhuma
+    private List<Long> criarTopicos(int quantidade) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < quantidade; i++) {
+                Topico topico = new Topico("Dúvida " + i, "Erro ao criar projeto", null);
+                topico.setDataCriacao(CRIACAO);
+                topico.setUltimaAtividade(CRIACAO);
+                em.persist(topico);
+                if (i % 2 == 0) {
+                    for (int horas = 1; horas <= 2; horas++) {
+                        Resposta resposta = new Resposta();
+                        resposta.setMensagem("Resposta " + horas);
+                        resposta.setTopico(topico);
+                        resposta.setDataCriacao(CRIACAO.plusHours(horas));
+                        em.persist(resposta);
+                    }
+                }
+                ids.add(topico.getId());
+            }
+            return ids;
+        });
+    }
+}
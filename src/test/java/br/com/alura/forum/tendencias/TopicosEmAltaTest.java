@@ -0,0 +1,67 @@
+package br.com.alura.forum.tendencias;
+
+import br.com.alura.forum.controller.dto.TopicoDto;
+import br.com.alura.forum.controller.dto.TopicoEmAltaDto;
+import br.com.alura.forum.repository.TopicoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TopicosEmAltaTest {
+
+    private static final long MEIA_VIDA = 60_000;
+
+    private TopicosEmAlta emAlta;
+
+    @BeforeEach
+    void setUp() {
+        TopicoRepository repository = mock(TopicoRepository.class);
+        when(repository.buscarPorIds(anyCollection())).thenAnswer(chamada -> chamada.<Collection<Long>>getArgument(0).stream()
+                .map(id -> new TopicoDto(id, "Tópico " + id, "Mensagem", LocalDateTime.now(), 0, LocalDateTime.now()))
+                .collect(Collectors.toList()));
+        emAlta = new TopicosEmAlta(repository, MEIA_VIDA, 3, 4);
+    }
+
+    @Test
+    void atividadeAntigaPesaMenosQueAtividadeRecente() {
+        long agora = System.currentTimeMillis();
+        emAlta.registrar(1L, "Spring Boot", 5, agora - 2 * MEIA_VIDA); // vale 5 / 4 agora
+        emAlta.registrar(2L, "Spring Boot", 2, agora);
+        emAlta.publicar();
+
+        assertThat(emAlta.buscar(null, 10)).extracting(TopicoEmAltaDto::getId).containsExactly(2L, 1L);
+        assertThat(emAlta.buscar(null, 10).get(1).getPontuacao()).isBetween(1.2, 1.3);
+    }
+
+    @Test
+    void rankingPorCursoSoTemOsTopicosDoCursoELimitaOTamanho() {
+        long agora = System.currentTimeMillis();
+        for (long id = 1; id <= 5; id++) {
+            emAlta.registrar(id, "Spring Boot", id, agora);
+        }
+        emAlta.registrar(10L, "HTML 5", 100, agora);
+        emAlta.publicar();
+
+        assertThat(emAlta.buscar("Spring Boot", 10)).extracting(TopicoEmAltaDto::getId).containsExactly(5L, 4L, 3L);
+        assertThat(emAlta.buscar(null, 2)).extracting(TopicoEmAltaDto::getId).containsExactly(10L, 5L);
+    }
+
+    @Test
+    void topicoRemovidoSaiDoRanking() {
+        long agora = System.currentTimeMillis();
+        emAlta.registrar(1L, "Spring Boot", 1, agora);
+        emAlta.registrar(2L, "Spring Boot", 2, agora);
+        emAlta.remover(2L, "Spring Boot");
+        emAlta.publicar();
+
+        assertThat(emAlta.buscar("Spring Boot", 10)).extracting(TopicoEmAltaDto::getId).containsExactly(1L);
+    }
+}